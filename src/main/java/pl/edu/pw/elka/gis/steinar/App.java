@@ -10,19 +10,22 @@ import pl.edu.pw.elka.gis.steinar.io.STPLoader;
 import pl.edu.pw.elka.gis.steinar.model.*;
 
 import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Główna klasa programu, stanowiąca moduł kontrolny aplikacji.
  */
 public class App {
 
-    private static final Map<SteinerAlgorithmEnum, AbstractMinimumSteinerTreeAlgorithm> steinerAlgorithms
-            = new HashMap<>(2);
-    static {
-        steinerAlgorithms.put(SteinerAlgorithmEnum.HAKIMI, new Hakimi());
-        steinerAlgorithms.put(SteinerAlgorithmEnum.KMB, new KMB());
-    }
+    // Solver jest bezstanowy - jeden obiekt obsługuje wszystkie (także równoczesne) obliczenia:
+    private static final SteinerSolver steinerSolver = new DefaultSteinerSolver();
 
     // Nazwy katalogów z grafami wejściowymi:
     public static final String RES_SIMPLE_GRAPHS_DIRNAME = "proste_grafy/";
@@ -43,15 +46,16 @@ public class App {
             System.out.println("Can't find an input STP file: " + e.getLocalizedMessage());
         } catch (NotConsistentFileException ex) {
             System.out.println("Problem with reading an input STP file: " + ex.getMessage());
-        } catch (IllegalStateException ex) {
-            System.out.println("Scanner is closed: " + ex.getLocalizedMessage());
+        } catch (UncheckedIOException ex) {
+            System.out.println("Problem with reading an input STP file: " + ex.getCause().getLocalizedMessage());
         }
         return null;
     }
 
     private static void saveSolution(AlgorithmOutput output, String filename) {
         try {
-            STPSaver.save(filename, output.getGraph(), output.getMeasurement());
+            // Graf wejściowy jest już zapisany w pliku instancji - zapisywane jest tylko rozwiązanie:
+            STPSaver.saveSolution(filename, output.getGraph(), output.getMeasurement());
         } catch (FileNotFoundException e) {
             System.out.println("Exception occurred during STP file saving: " + e.getLocalizedMessage());
             e.printStackTrace();
@@ -73,16 +77,27 @@ public class App {
 
     private static AlgorithmOutput findMinimalSteinerTree(SteinerGraph steinerGraph,
                                                          SteinerAlgorithmEnum steinerAlgorithm) {
-        AbstractMinimumSteinerTreeAlgorithm algorithm = steinerAlgorithms.get(steinerAlgorithm);
-        algorithm.init(steinerGraph);
+        SteinerSolution solution = steinerSolver.solve(steinerGraph, SolverOptions.defaults(steinerAlgorithm));
 
-        long t = System.currentTimeMillis();
-        algorithm.compute();
-        long td = System.currentTimeMillis() - t;
+        if (solution.getReductionStatistics() != null) {
+            printOutReductionInfo(solution.getReductionStatistics());
+        }
+
+        steinerGraph.clearSolution();
+        steinerGraph.setResultTreeEdges(solution.getEdges());
+        SolutionMeasurement measurement = new SolutionMeasurement(solution.getWeight(),
+                (float) solution.getTotalTime() / 1e9f, steinerAlgorithm, computeLowerBound(steinerGraph));
+        return new AlgorithmOutput(measurement, steinerGraph);
+    }
 
-        SolutionMeasurement solution = new SolutionMeasurement(algorithm.getSteinerGraph().getResultTreeWeight(),
-                (float)(td)/1000, steinerAlgorithm);
-        return new AlgorithmOutput(solution, algorithm.getSteinerGraph());
+    /**
+     * Dolne ograniczenie kosztu drzewa Steinera (metoda wzrostu dualnego) - pozwala ocenić jakość rozwiązań
+     * algorytmów przybliżonych bez uruchamiania algorytmów dokładnych.
+     */
+    private static int computeLowerBound(SteinerGraph steinerGraph) {
+        DualAscent dualAscent = new DualAscent(steinerGraph.getCompactGraph(), steinerGraph.getTerminalIndices());
+        dualAscent.compute();
+        return (int) dualAscent.getLowerBound();
     }
 
     private static void printOutSolutionBasicInfo(AlgorithmOutput output) {
@@ -96,6 +111,7 @@ public class App {
 
         int steinerTreeEdgeCount = output.getGraph().getResultTreeEdgeCount();
         int steinerTreeWeight = output.getMeasurement().getLength();
+        Integer lowerBound = output.getMeasurement().getLowerBound();
 
         System.out.println("Graph name: " + graphName);
         System.out.println("Graph's node count: " + graphNodeCount);
@@ -107,6 +123,22 @@ public class App {
 
         System.out.println("Steiner tree's edge count: " + steinerTreeEdgeCount);
         System.out.println("Steiner tree's weight: " + steinerTreeWeight);
+        if (lowerBound != null) {
+            System.out.println("Lower bound: " + lowerBound + " (gap: " + 100 * output.getMeasurement().getGap() + "%)");
+        }
+    }
+
+    private static void printOutReductionInfo(ReductionStatistics reduction) {
+        int nodeCount = reduction.getReducedNodeCount();
+        int edgeCount = reduction.getReducedEdgeCount();
+        int removedNodesPercent = 100 - 100 * nodeCount / Math.max(reduction.getOriginalNodeCount(), 1);
+        int removedEdgesPercent = 100 - 100 * edgeCount / Math.max(reduction.getOriginalEdgeCount(), 1);
+
+        System.out.println("   Reduction: nodes " + reduction.getOriginalNodeCount() + " -> " + nodeCount
+                + " (-" + removedNodesPercent + "%), edges " + reduction.getOriginalEdgeCount() + " -> " + edgeCount
+                + " (-" + removedEdgesPercent + "%), terminals " + reduction.getOriginalTerminalCount() + " -> "
+                + reduction.getReducedTerminalCount() + ", fixed edges: " + reduction.getFixedEdgeCount()
+                + ", rounds: " + reduction.getRoundCount());
     }
 
     private static void showSteinerGraph(SteinerGraph steinerGraph) {
@@ -211,6 +243,17 @@ public class App {
         runTests(resultsWriter, RES_STEINLIB_GRAPHS_DIRNAME, graphNames, optimumWeights, algoType);
     }
 
+    private static void runFewTerminalsSteinlibGraphTests(SteinerAlgorithmEnum algoType) {
+        String[] graphNames = {"b05", "b10", "c11", "c12", "e06", "p455", "p457", "p463"};
+        int[] optimumWeights = {61, 86, 32, 46, 73, 1138, 1609, 1510};
+
+        CSVWriter resultsWriter = new CSVWriter(RESULTS_DIRNAME + "steinlib_wyniki_" + algoType + ".csv");
+        resultsWriter.deleteFileIfExists();
+        resultsWriter.writeHeader();
+
+        runTests(resultsWriter, RES_STEINLIB_GRAPHS_DIRNAME, graphNames, optimumWeights, algoType);
+    }
+
     private static void runGeneratedFullConnectedGraphTests(SteinerAlgorithmEnum algoType) {
         String[] graphNames = {"full_12", "full_14", "full_16", "full_18", "full_20", "full_22", "full_24", "full_26",
         "full_28", "full_30", "full_32", "full_34", "full_36"};
@@ -232,6 +275,76 @@ public class App {
         runTests(resultsWriter, RES_GENERATED_GRAPHS_DIRNAME, graphNames, null, algoType);
     }
 
+    /**
+     * Test obciążeniowy równoległych obliczeń: wiele wątków jednocześnie rozwiązuje tę samą instancję jednym
+     * obiektem solvera. Wyniki muszą być identyczne z rozwiązaniem wyznaczonym sekwencyjnie, a graf wejściowy
+     * - niezmieniony.
+     */
+    private static void runConcurrentSolverStressTest(String filename, SteinerAlgorithmEnum algoType,
+                                                      int threadCount, int solvesPerThread) {
+        System.out.println("Loading graph and terminals from file: " + filename);
+        SteinerGraph steinerGraph = loadSteinerGraph(filename);
+        if (steinerGraph == null) {
+            System.out.println("SteinerGraph is null!");
+            return;
+        }
+
+        // Równoległość zapewniają wątki wywołujące - pojedyncze wywołanie nie zajmuje dodatkowych wątków puli:
+        SolverOptions options = SolverOptions.defaults(algoType).withParallelism(1);
+        SteinerSolution reference = steinerSolver.solve(steinerGraph, options);
+        int[] referenceEdges = reference.getEdges();
+        // Stan grafu wejściowego przed obliczeniami (solver nie może go modyfikować ani przebudowywać):
+        int[] resultTreeEdges = steinerGraph.getResultTreeEdgeIndices();
+        int[] terminals = steinerGraph.getTerminalIndices();
+        CompactGraph compactGraph = steinerGraph.getCompactGraph();
+
+        System.out.println("   Starting " + threadCount + " threads x " + solvesPerThread + " solves (" + algoType
+                + ")...");
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        AtomicInteger mismatchCount = new AtomicInteger();
+        List<Future<Void>> results = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; ++i) {
+            results.add(executor.submit(() -> {
+                startSignal.await();
+                for (int k = 0; k < solvesPerThread; ++k) {
+                    SteinerSolution solution = steinerSolver.solve(steinerGraph, options);
+                    if (solution.getWeight() != reference.getWeight()
+                            || !Arrays.equals(solution.getEdges(), referenceEdges)) {
+                        mismatchCount.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long t = System.currentTimeMillis();
+        startSignal.countDown();
+        int failureCount = 0;
+        try {
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) {
+                    ++failureCount;
+                    System.out.println("   Solve failed: " + ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        long td = System.currentTimeMillis() - t;
+
+        boolean graphUnchanged = Arrays.equals(steinerGraph.getResultTreeEdgeIndices(), resultTreeEdges)
+                && Arrays.equals(steinerGraph.getTerminalIndices(), terminals)
+                && steinerGraph.getCompactGraph() == compactGraph;
+        System.out.println("   ...done. Time [s]: " + (float) td / 1000 + ", mismatched solutions: "
+                + mismatchCount.get() + ", failed threads: " + failureCount + ", input graph unchanged: "
+                + graphUnchanged);
+    }
+
     /**
      * ************************* METODA MAIN *****************************
      */
@@ -242,11 +355,17 @@ public class App {
 
         runSimpleGraphTests(SteinerAlgorithmEnum.HAKIMI);
         runSimpleGraphTests(SteinerAlgorithmEnum.KMB);
+        runSimpleGraphTests(SteinerAlgorithmEnum.HAKIMI_BRANCH_AND_BOUND);
+
+        runConcurrentSolverStressTest(RES_STEINLIB_GRAPHS_DIRNAME + "c13.stp", SteinerAlgorithmEnum.KMB, 8, 10);
+        runConcurrentSolverStressTest(RES_STEINLIB_GRAPHS_DIRNAME + "d20.stp", SteinerAlgorithmEnum.MEHLHORN, 8, 10);
 
         runGeneratedFullConnectedGraphTests(SteinerAlgorithmEnum.KMB);
         runGeneratedGridGraphTests(SteinerAlgorithmEnum.KMB);
 
         runSteinlibGraphTests(SteinerAlgorithmEnum.KMB);
+        runSteinlibGraphTests(SteinerAlgorithmEnum.MEHLHORN);
+        runFewTerminalsSteinlibGraphTests(SteinerAlgorithmEnum.DREYFUS_WAGNER);
 
         runGeneratedFullConnectedGraphTests(SteinerAlgorithmEnum.HAKIMI);
         runGeneratedGridGraphTests(SteinerAlgorithmEnum.HAKIMI);
@@ -2,27 +2,53 @@ package pl.edu.pw.elka.gis.steinar.algorithms;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
-import org.graphstream.graph.Node;
+import lombok.Setter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.DenseGraph;
 import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Klasa bazowa algorytmów KMB i Hakimi do wyszukiwania minimalnego drzewa Steinera.
+ *
+ * Obliczenia prowadzone są na zwartej reprezentacji grafu ({@link CompactGraph}), a rozwiązanie zapisywane jest
+ * do {@link SteinerGraph} jako zbiór indeksów krawędzi.
  */
 @NoArgsConstructor
 public abstract class AbstractMinimumSteinerTreeAlgorithm {
 
-    protected static final String DIJKSTRA_RESULT_ATTR = "dijkstra_result";
-    protected static final String DIJKSTRA_SOLUTION_ATTR = "dijkstra_solution";
-    protected static final String PRIM_RESULT_ATTR = "prim_result";
-    protected static final String PRIM_SOLUTION_ATTR = "prim_solution";
-
     @Getter
     protected SteinerGraph steinerGraph;
+    /**
+     * Rodzaj kolejki priorytetowej używanej przez uruchamiane algorytmy Dijkstry i Prima.
+     */
+    @Getter
+    @Setter
+    protected PriorityQueueType queueType = PriorityQueueType.AUTO;
+    /**
+     * Sposób wyszukiwania najkrótszej ścieżki, gdy graf ma dwa terminale.
+     */
+    @Getter
+    @Setter
+    protected ShortestPathMode shortestPathMode = ShortestPathMode.BIDIRECTIONAL;
+    /**
+     * Czy przed uruchomieniem algorytmu instancja ma zostać zredukowana ({@link GraphReduction}).
+     */
+    @Getter
+    @Setter
+    protected boolean reductionEnabled;
+    /**
+     * Maksymalna liczba wątków wspólnej puli ForkJoin używanych przez pojedynczy przebieg algorytmu
+     * (1 - obliczenia sekwencyjne w wątku wywołującym).
+     */
+    @Getter
+    @Setter
+    protected int parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * Redukcja wykonana w ostatnim przebiegu (null, jeśli redukcja była wyłączona).
+     */
+    @Getter
+    protected GraphReduction lastReduction;
 
     public void init(SteinerGraph steinerGraph) {
         this.steinerGraph = steinerGraph;
@@ -30,16 +56,6 @@ public abstract class AbstractMinimumSteinerTreeAlgorithm {
 
     public void clear() {
         this.steinerGraph.clearSolution();
-
-        for (Edge edge : this.steinerGraph.getGraph().getEdgeSet()) {
-            edge.removeAttribute(PRIM_SOLUTION_ATTR);
-            edge.removeAttribute(DIJKSTRA_SOLUTION_ATTR);
-        }
-
-        for (Node node : this.steinerGraph.getGraph().getNodeSet()) {
-            node.removeAttribute(DIJKSTRA_RESULT_ATTR);
-            node.removeAttribute(PRIM_RESULT_ATTR);
-        }
     }
 
     public void compute() {
@@ -47,56 +63,106 @@ public abstract class AbstractMinimumSteinerTreeAlgorithm {
             throw new IllegalStateException("SteinerGraph not specified!");
         }
 
-        if (isShortestPathProblem()) {
-            findShortestPath();
-        } else if (isMinimumSPanningTreeProblem()) {
-            findMinimumSpanningTree();
+        SteinerSolution solution = solve(this.steinerGraph.getCompactGraph(), this.steinerGraph.getTerminalIndices());
+        this.steinerGraph.setResultTreeEdges(solution.getEdges());
+    }
+
+    /**
+     * Wyznaczenie drzewa Steinera dla instancji w postaci zwartej - bez zapisu rozwiązania do {@link SteinerGraph}.
+     * Graf i tablica terminali są jedynie odczytywane.
+     *
+     * @param graph     graf w postaci zwartej
+     * @param terminals indeksy węzłów terminalnych
+     * @return          rozwiązanie wraz z czasami poszczególnych etapów
+     */
+    public SteinerSolution solve(CompactGraph graph, int[] terminals) {
+        this.lastReduction = null;
+
+        long start = System.nanoTime();
+        // Problem najkrótszej ścieżki nie jest redukowany - zapytanie korzysta wtedy z danych zapamiętanych
+        // w grafie wejściowym (np. punktów orientacyjnych), a nie w nowym grafie zredukowanym:
+        if (reductionEnabled && !isShortestPathProblem(terminals)) {
+            this.lastReduction = new GraphReduction(graph, terminals);
+            this.lastReduction.reduce();
+        }
+        long reduced = System.nanoTime();
+
+        CompactGraph solvedGraph = lastReduction != null ? lastReduction.getReducedGraph() : graph;
+        int[] solvedTerminals = lastReduction != null ? lastReduction.getReducedTerminals() : terminals;
+        int[] treeEdges;
+        if (solvedTerminals.length < 2) {
+            treeEdges = new int[0];
+        } else if (isShortestPathProblem(solvedTerminals)) {
+            treeEdges = findShortestPath(solvedGraph, solvedTerminals);
+        } else if (isMinimumSPanningTreeProblem(solvedGraph, solvedTerminals)) {
+            treeEdges = findMinimumSpanningTree(solvedGraph, solvedTerminals);
         } else {
-            findMinimumSteinerTree();
+            treeEdges = findMinimumSteinerTree(solvedGraph, solvedTerminals);
         }
-    }
+        long solved = System.nanoTime();
 
-    private boolean isShortestPathProblem() {
-        return this.steinerGraph.getTerminalCount() == 2;
-    }
+        if (this.lastReduction != null) {
+            treeEdges = this.lastReduction.expand(treeEdges);
+        }
+        long expanded = System.nanoTime();
 
-    private boolean isMinimumSPanningTreeProblem() {
-        return this.steinerGraph.getTerminalCount() == this.steinerGraph.getNodeCount();
+        ReductionStatistics reductionStatistics = lastReduction != null ? lastReduction.getStatistics() : null;
+        return new SteinerSolution(treeEdges, graph.getTotalWeight(treeEdges, treeEdges.length), reductionStatistics,
+                reduced - start, solved - reduced, expanded - solved);
     }
 
-    private void findShortestPath() {
-        Graph graph = this.steinerGraph.getGraph();
-        List<String> nodeIds = new ArrayList<>(this.steinerGraph.getTerminalNodeIds());
-
-        Dijkstra dijkstra = new Dijkstra();
-        dijkstra.init(graph, nodeIds.get(0), SteinerGraph.WEIGHT_ATTR, DIJKSTRA_RESULT_ATTR, DIJKSTRA_SOLUTION_ATTR);
-        dijkstra.compute();
+    private boolean isShortestPathProblem(int[] terminals) {
+        return terminals.length == 2;
+    }
 
-        List<Edge> edges = dijkstra.getShortestPathEdges(graph.getNode(nodeIds.get(1)));
-        this.steinerGraph.setResultTreeEdges(edges);
+    private boolean isMinimumSPanningTreeProblem(CompactGraph graph, int[] terminals) {
+        return terminals.length == graph.getNodeCount();
+    }
 
-        dijkstra.clear();
+    private int[] findShortestPath(CompactGraph graph, int[] terminals) {
+        switch (shortestPathMode) {
+            case BIDIRECTIONAL:
+                return ShortestPathSearches.findBidirectional(graph, queueType, terminals[0], terminals[1]);
+            case ALT:
+                // Punkty orientacyjne grafu zredukowanego (tworzonego przy każdym rozwiązaniu) nie zostałyby
+                // ponownie wykorzystane - ich wyznaczenie jest droższe od pojedynczego zapytania:
+                if (lastReduction != null) {
+                    return ShortestPathSearches.findBidirectional(graph, queueType, terminals[0], terminals[1]);
+                }
+                return ShortestPathSearches.findAlt(graph, queueType, terminals[0], terminals[1]);
+            default:
+                Dijkstra dijkstra = new Dijkstra();
+                dijkstra.init(graph, terminals[0]);
+                dijkstra.setTargets(new int[]{terminals[1]});
+                dijkstra.setQueueType(queueType);
+                dijkstra.compute();
+
+                return dijkstra.getShortestPathEdges(terminals[1]);
+        }
     }
 
-    private void findMinimumSpanningTree() {
-        Graph graph = this.steinerGraph.getGraph();
-        Node startNode = getAnyNode();
+    private int[] findMinimumSpanningTree(CompactGraph graph, int[] terminals) {
+        if (DenseGraph.isDense(graph)) {
+            DensePrim densePrim = new DensePrim(new DenseGraph(graph));
+            densePrim.compute(terminals[0]);
+            return densePrim.getMinimumSpanningTreeEdges();
+        }
 
         Prim prim = new Prim();
-        prim.init(graph, startNode.getId(), SteinerGraph.WEIGHT_ATTR, PRIM_RESULT_ATTR, PRIM_SOLUTION_ATTR);
+        prim.init(graph, terminals[0]);
+        prim.setQueueType(queueType);
         prim.compute();
 
-        List<Edge> edges = prim.getMinimumSpanningTreeEdges();
-        this.steinerGraph.setResultTreeEdges(edges);
-
-        prim.clear();
+        return prim.getMinimumSpanningTreeEdges();
     }
 
-    private Node getAnyNode() {
-        return this.steinerGraph.getNodes().iterator().next();
-    }
-
-
-    protected abstract void findMinimumSteinerTree();
+    /**
+     * Właściwy algorytm wyszukiwania minimalnego drzewa Steinera.
+     *
+     * @param graph     graf w postaci zwartej
+     * @param terminals indeksy węzłów terminalnych
+     * @return          indeksy krawędzi znalezionego drzewa
+     */
+    protected abstract int[] findMinimumSteinerTree(CompactGraph graph, int[] terminals);
 
 }
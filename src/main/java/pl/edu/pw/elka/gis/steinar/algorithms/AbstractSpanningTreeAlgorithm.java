@@ -3,119 +3,255 @@ package pl.edu.pw.elka.gis.steinar.algorithms;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.graphstream.algorithm.util.FibonacciHeap;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
-import org.graphstream.graph.Node;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.InducedSubgraph;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Klasa bazowa algorytmów Dijkstry i Prima.
+ *
+ * Algorytmy działają na zwartej reprezentacji grafu ({@link CompactGraph}); węzły i krawędzie są identyfikowane
+ * indeksami, a wynikiem jest tablica indeksów krawędzi drzewa. Stan przebiegu przechowywany jest w obszarze
+ * roboczym ({@link SearchWorkspace}), który można współdzielić między kolejnymi przebiegami algorytmów
+ * na tym samym grafie.
  */
 @NoArgsConstructor
 public abstract class AbstractSpanningTreeAlgorithm {
 
     @Getter
     @Setter
-    private Graph graph;
+    private CompactGraph graph;
     @Getter
     @Setter
-    private String edgeWeightAttributeName;
+    private int start = -1;
+    /**
+     * Opcjonalny zbiór źródeł (zastępuje węzeł startowy) - pierwsze sourceCount elementów tablicy trafia
+     * do kolejki z kluczem 0.
+     */
+    @Getter
+    private int[] sources;
+    @Getter
+    private int sourceCount;
+    /**
+     * Opcjonalna maska węzłów - jeśli jest ustawiona, algorytm działa na podgrafie indukowanym na węzłach,
+     * dla których maska ma wartość true.
+     */
     @Getter
     @Setter
-    private String resultAttributeName;
+    private boolean[] nodeMask;
+    /**
+     * Opcjonalny zbiór węzłów docelowych - przebieg kończy się po przetworzeniu wszystkich z nich.
+     */
     @Getter
     @Setter
-    private String inSolutionAttributeName;
+    private int[] targets;
+    /**
+     * Opcjonalne ograniczenie klucza - węzły o kluczu (odległości) większym od ograniczenia nie są przetwarzane.
+     */
     @Getter
     @Setter
-    private Node start;
+    private int distanceLimit = Integer.MAX_VALUE;
+    @Getter
+    @Setter
+    private PriorityQueueType queueType = PriorityQueueType.AUTO;
+    /**
+     * Obszar roboczy algorytmu - tworzony przy pierwszym przebiegu, jeśli nie został ustawiony.
+     */
+    @Getter
+    @Setter
+    private SearchWorkspace workspace;
+
+    protected int[] resultantTreeEdges = new int[16];
+    protected int resultantTreeEdgeCount;
 
-    protected List<Edge> resultantTreeEdges;
+    // Znaczniki węzłów docelowych (używane jedynie w trakcie przebiegu):
+    private boolean[] targetMask;
 
-    public void init(Graph graph, String startingNodeId, String edgeWeightAttributeName,
-                     String resultAttributeName, String inSolutionAttributeName) {
+    public void init(CompactGraph graph, int start) {
         this.graph = graph;
-        this.edgeWeightAttributeName = edgeWeightAttributeName;
-        this.edgeWeightAttributeName = edgeWeightAttributeName;
-        this.resultAttributeName = resultAttributeName;
-        this.inSolutionAttributeName = inSolutionAttributeName;
-        this.start = this.graph.getNode(startingNodeId);
-        this.resultantTreeEdges = new LinkedList<>();
+        this.start = start;
+        this.sources = null;
+        this.sourceCount = 0;
+        this.nodeMask = null;
+        this.targets = null;
+        this.distanceLimit = Integer.MAX_VALUE;
+        this.resultantTreeEdgeCount = 0;
+    }
+
+    /**
+     * Inicjalizacja algorytmu z wieloma źródłami.
+     *
+     * @param graph     graf
+     * @param sources   indeksy węzłów źródłowych (niepusta tablica)
+     */
+    public void init(CompactGraph graph, int[] sources) {
+        init(graph, sources, sources.length);
+    }
+
+    /**
+     * Inicjalizacja algorytmu ze źródłami z początkowego fragmentu tablicy (bez jej kopiowania).
+     *
+     * @param graph       graf
+     * @param sources     tablica zawierająca indeksy węzłów źródłowych
+     * @param sourceCount liczba źródeł (dodatnia)
+     */
+    public void init(CompactGraph graph, int[] sources, int sourceCount) {
+        init(graph, sources[0]);
+        this.sources = sources;
+        this.sourceCount = sourceCount;
+    }
+
+    /**
+     * Inicjalizacja algorytmu działającego na podgrafie indukowanym (bez kopiowania grafu).
+     *
+     * @param subgraph  podgraf indukowany
+     * @param start     indeks węzła startowego (węzeł podgrafu)
+     */
+    public void init(InducedSubgraph subgraph, int start) {
+        init(subgraph.getGraph(), start);
+        this.nodeMask = subgraph.getNodeMask();
     }
 
     public void clear() {
-        this.graph.getEdgeSet().forEach(edge -> edge.removeAttribute(inSolutionAttributeName));
-        this.graph.getNodeSet().forEach(node -> node.removeAttribute(resultAttributeName));
-        this.resultantTreeEdges.clear();
+        if (this.workspace != null) {
+            this.workspace.reset();
+        }
+        this.resultantTreeEdgeCount = 0;
     }
 
     public void compute() {
         if (this.graph == null) {
             throw new IllegalStateException("Graph not specified!");
         }
-        if (this.start == null) {
+        if (this.start < 0 || this.start >= this.graph.getNodeCount()) {
             throw new IllegalStateException("Start/source node not specified!");
         }
 
+        if (this.workspace == null || this.workspace.getCapacity() < this.graph.getNodeCount()) {
+            this.workspace = SearchWorkspace.create(this.graph, this.queueType);
+        }
+        clear();
+
         coreAlgorithm();
     }
 
-    protected static class NodeData {
-        FibonacciHeap<Integer, Node>.Node nodeInQueue;
-        Edge edgeFromParent;
-        int distance;
+    public int[] getResultantTreeEdges() {
+        return Arrays.copyOf(resultantTreeEdges, resultantTreeEdgeCount);
+    }
+
+    public int getResultantTreeEdgeCount() {
+        return resultantTreeEdgeCount;
+    }
+
+    /**
+     * Krawędź drzewa wynikowego dodana jako i-ta (bez kopiowania tablicy wyniku).
+     */
+    public int getResultantTreeEdge(int i) {
+        return resultantTreeEdges[i];
     }
 
     protected void coreAlgorithm() {
-        FibonacciHeap<Integer, Node> queue = new FibonacciHeap<>();
-
-        for (Node node : this.graph) {
-            NodeData data = new NodeData();
-            int w = node == start ? 0 : Integer.MAX_VALUE;
-            data.edgeFromParent = null;
-            data.nodeInQueue = queue.add(w, node);
-            node.addAttribute(resultAttributeName, data);
+        SearchWorkspace ws = this.workspace;
+        IntPriorityQueue queue = ws.getQueue();
+        boolean[] mask = this.nodeMask;
+        int limit = this.distanceLimit;
+        int remainingTargets = markTargets();
+
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int[] edgeIds = graph.getEdgeIds();
+
+        // Węzły trafiają do kolejki dopiero po osiągnięciu ich po raz pierwszy (węzły nieosiągalne
+        // nigdy nie zostają do niej dodane).
+        if (sources == null) {
+            ws.reach(start, 0, -1);
+            queue.add(start, 0);
+        } else {
+            for (int i = 0; i < sourceCount; ++i) {
+                int source = sources[i];
+                if (!queue.contains(source)) {
+                    ws.reach(source, 0, -1);
+                    queue.add(source, 0);
+                }
+            }
         }
 
         while (!queue.isEmpty()) {
-            Node u = queue.extractMin();
-            NodeData uData = u.getAttribute(resultAttributeName);
-            uData.distance = uData.nodeInQueue.getKey();
-            uData.nodeInQueue = null;
+            int u = queue.extractMin();
+            int uDistance = queue.getKey(u);
+            if (uDistance > limit) {
+                break;
+            }
+            ws.settle(u);
 
-            if (uData.edgeFromParent != null) {
-                addEdgeToSolution(uData.edgeFromParent);
+            if (ws.getParentEdge(u) >= 0) {
+                addEdgeToSolution(ws.getParentEdge(u));
+            }
+            if (remainingTargets > 0 && targetMask[u]) {
+                targetMask[u] = false;
+                if (--remainingTargets == 0) {
+                    break;
+                }
             }
 
-            for (Edge e : u.getEachLeavingEdge()) {
-                Node v = e.getOpposite(u);
-                NodeData vData = v.getAttribute(resultAttributeName);
-                if (vData.nodeInQueue == null) {
+            for (int i = graph.getFirstArc(u), end = graph.getEndArc(u); i < end; ++i) {
+                int v = targets[i];
+                if ((mask != null && !mask[v]) || ws.isSettled(v)) {
                     continue;
                 }
 
-                int alt = relaxFunction(e, uData);
+                int alt = relaxFunction(weights[i], uDistance);
 
-                if (alt < vData.nodeInQueue.getKey()) {
-                    vData.edgeFromParent = e;
-                    queue.decreaseKey(vData.nodeInQueue, alt);
+                if (!queue.contains(v)) {
+                    ws.reach(v, alt, edgeIds[i]);
+                    queue.add(v, alt);
+                } else if (alt < queue.getKey(v)) {
+                    ws.reach(v, alt, edgeIds[i]);
+                    queue.decreaseKey(v, alt);
                 }
             }
         }
+
+        // Węzły docelowe nieosiągnięte przed zakończeniem przebiegu pozostają oznaczone:
+        if (remainingTargets > 0) {
+            for (int target : this.targets) {
+                targetMask[target] = false;
+            }
+        }
     }
 
-    protected int getWeight(Edge edge) {
-        return edge.getAttribute(edgeWeightAttributeName);
+    /**
+     * Oznaczenie węzłów docelowych w tablicy targetMask.
+     *
+     * @return  liczba różnych węzłów docelowych (0, jeśli zbiór nie został ustawiony)
+     */
+    private int markTargets() {
+        if (this.targets == null) {
+            return 0;
+        }
+        if (targetMask == null || targetMask.length < graph.getNodeCount()) {
+            targetMask = new boolean[graph.getNodeCount()];
+        }
+        int count = 0;
+        for (int target : this.targets) {
+            if (!targetMask[target]) {
+                targetMask[target] = true;
+                ++count;
+            }
+        }
+        return count;
     }
 
-    protected void addEdgeToSolution(Edge e) {
-        e.addAttribute(inSolutionAttributeName, true);
-        this.resultantTreeEdges.add(e);
+    protected void addEdgeToSolution(int edge) {
+        if (resultantTreeEdgeCount == resultantTreeEdges.length) {
+            resultantTreeEdges = Arrays.copyOf(resultantTreeEdges, 2 * resultantTreeEdgeCount);
+        }
+        this.resultantTreeEdges[resultantTreeEdgeCount++] = edge;
     }
 
-    protected abstract int relaxFunction(Edge uv, NodeData uData);
+    protected abstract int relaxFunction(int uvWeight, int uDistance);
 
 }
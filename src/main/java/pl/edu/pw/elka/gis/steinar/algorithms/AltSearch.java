@@ -0,0 +1,94 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Algorytm ALT (A*, landmarks, triangle inequality) - wyszukiwanie najkrótszej ścieżki algorytmem A* z funkcją
+ * heurystyczną wyznaczaną z odległości od punktów orientacyjnych ({@link Landmarks}).
+ *
+ * Heurystyka jest spójna, więc każdy węzeł przetwarzany jest co najwyżej raz, a przeszukiwanie kończy się
+ * po przetworzeniu celu. Punkty orientacyjne i obszar roboczy są zachowywane między kolejnymi zapytaniami.
+ */
+public class AltSearch {
+
+    @Getter
+    private final Landmarks landmarks;
+    private final CompactGraph graph;
+    private final SearchWorkspace workspace;
+
+    private int[] pathEdges = new int[16];
+    private int pathEdgeCount;
+
+    public AltSearch(Landmarks landmarks, PriorityQueueType queueType) {
+        this.landmarks = landmarks;
+        this.graph = landmarks.getGraph();
+        // Klucze A* (odległość + heurystyka) sąsiadów różnią się o co najwyżej dwukrotność wagi krawędzi:
+        int nodeCount = graph.getNodeCount();
+        this.workspace = new SearchWorkspace(nodeCount, queueType.create(nodeCount, 2 * graph.getMaxWeight()));
+    }
+
+    /**
+     * Wyszukanie najkrótszej ścieżki.
+     *
+     * @param source    węzeł źródłowy
+     * @param target    węzeł docelowy
+     * @return          indeksy krawędzi ścieżki (pusta tablica, jeśli węzły są równe lub nie są połączone)
+     */
+    public int[] findShortestPath(int source, int target) {
+        SearchWorkspace ws = this.workspace;
+        IntPriorityQueue queue = ws.getQueue();
+        ws.reset();
+
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int[] edgeIds = graph.getEdgeIds();
+
+        ws.reach(source, 0, -1);
+        queue.add(source, landmarks.lowerBound(source, target));
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            ws.settle(u);
+            if (u == target) {
+                break;
+            }
+
+            int uDistance = ws.getDistance(u);
+            for (int i = graph.getFirstArc(u), end = graph.getEndArc(u); i < end; ++i) {
+                int v = targets[i];
+                if (ws.isSettled(v)) {
+                    continue;
+                }
+                int alt = uDistance + weights[i];
+                if (!queue.contains(v)) {
+                    ws.reach(v, alt, edgeIds[i]);
+                    queue.add(v, alt + landmarks.lowerBound(v, target));
+                } else if (alt < ws.getDistance(v)) {
+                    int heuristic = queue.getKey(v) - ws.getDistance(v);
+                    ws.reach(v, alt, edgeIds[i]);
+                    queue.decreaseKey(v, alt + heuristic);
+                }
+            }
+        }
+
+        pathEdgeCount = 0;
+        if (ws.isSettled(target)) {
+            int node = target;
+            int edge = ws.getParentEdge(node);
+            while (edge >= 0) {
+                if (pathEdgeCount == pathEdges.length) {
+                    pathEdges = Arrays.copyOf(pathEdges, 2 * pathEdgeCount);
+                }
+                pathEdges[pathEdgeCount++] = edge;
+                node = graph.getOpposite(edge, node);
+                edge = ws.getParentEdge(node);
+            }
+        }
+        return Arrays.copyOf(pathEdges, pathEdgeCount);
+    }
+
+}
@@ -0,0 +1,129 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Dwukierunkowy algorytm Dijkstry - wyszukiwanie najkrótszej ścieżki między dwoma węzłami prowadzone jednocześnie
+ * od źródła i od celu (w każdym kroku rozwijana jest strona o mniejszej kolejce).
+ *
+ * Długość najlepszej znalezionej ścieżki mu aktualizowana jest przy każdej relaksacji krawędzi prowadzącej do węzła
+ * osiągniętego przez drugą stronę. Przeszukiwanie kończy się, gdy suma kluczy ostatnio przetworzonych węzłów obu
+ * stron osiąga mu. Obszary robocze obu stron są zachowywane między kolejnymi zapytaniami na tym samym grafie.
+ */
+public class BidirectionalDijkstra {
+
+    private final CompactGraph graph;
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+
+    private int[] pathEdges = new int[16];
+    private int pathEdgeCount;
+
+    public BidirectionalDijkstra(CompactGraph graph, PriorityQueueType queueType) {
+        this.graph = graph;
+        this.forward = SearchWorkspace.create(graph, queueType);
+        this.backward = SearchWorkspace.create(graph, queueType);
+    }
+
+    /**
+     * Wyszukanie najkrótszej ścieżki.
+     *
+     * @param source    węzeł źródłowy
+     * @param target    węzeł docelowy
+     * @return          indeksy krawędzi ścieżki (pusta tablica, jeśli węzły są równe lub nie są połączone)
+     */
+    public int[] findShortestPath(int source, int target) {
+        forward.reset();
+        backward.reset();
+        if (source == target) {
+            return new int[0];
+        }
+
+        IntPriorityQueue forwardQueue = forward.getQueue();
+        IntPriorityQueue backwardQueue = backward.getQueue();
+        forward.reach(source, 0, -1);
+        forwardQueue.add(source, 0);
+        backward.reach(target, 0, -1);
+        backwardQueue.add(target, 0);
+
+        int best = Integer.MAX_VALUE;
+        int meetingEdge = -1, forwardMeetingNode = -1;
+        int forwardLast = 0, backwardLast = 0;
+
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int[] edgeIds = graph.getEdgeIds();
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            boolean isForward = forwardQueue.size() <= backwardQueue.size();
+            SearchWorkspace ws = isForward ? forward : backward;
+            SearchWorkspace other = isForward ? backward : forward;
+            IntPriorityQueue queue = ws.getQueue();
+
+            int u = queue.extractMin();
+            int uDistance = queue.getKey(u);
+            ws.settle(u);
+            if (isForward) {
+                forwardLast = uDistance;
+            } else {
+                backwardLast = uDistance;
+            }
+            if ((long) forwardLast + backwardLast >= best) {
+                break;
+            }
+
+            for (int i = graph.getFirstArc(u), end = graph.getEndArc(u); i < end; ++i) {
+                int v = targets[i];
+                int alt = uDistance + weights[i];
+
+                if (other.isReached(v) && (long) alt + other.getDistance(v) < best) {
+                    best = alt + other.getDistance(v);
+                    meetingEdge = edgeIds[i];
+                    forwardMeetingNode = isForward ? u : v;
+                }
+                if (ws.isSettled(v)) {
+                    continue;
+                }
+                if (!queue.contains(v)) {
+                    ws.reach(v, alt, edgeIds[i]);
+                    queue.add(v, alt);
+                } else if (alt < queue.getKey(v)) {
+                    ws.reach(v, alt, edgeIds[i]);
+                    queue.decreaseKey(v, alt);
+                }
+            }
+        }
+
+        pathEdgeCount = 0;
+        if (meetingEdge >= 0) {
+            addPathToRoot(forward, forwardMeetingNode);
+            addPathEdge(meetingEdge);
+            addPathToRoot(backward, graph.getOpposite(meetingEdge, forwardMeetingNode));
+        }
+        return Arrays.copyOf(pathEdges, pathEdgeCount);
+    }
+
+    /**
+     * Dodanie do ścieżki krawędzi od węzła do korzenia drzewa przeszukiwania danej strony.
+     */
+    private void addPathToRoot(SearchWorkspace ws, int node) {
+        int edge = ws.getParentEdge(node);
+        while (edge >= 0) {
+            addPathEdge(edge);
+            node = graph.getOpposite(edge, node);
+            edge = ws.getParentEdge(node);
+        }
+    }
+
+    private void addPathEdge(int edge) {
+        if (pathEdgeCount == pathEdges.length) {
+            pathEdges = Arrays.copyOf(pathEdges, 2 * pathEdgeCount);
+        }
+        pathEdges[pathEdgeCount++] = edge;
+    }
+
+}
@@ -0,0 +1,41 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.model.SteinerAlgorithmEnum;
+import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+
+/**
+ * Implementacja {@link SteinerSolver} oparta na algorytmach z klasy bazowej
+ * {@link AbstractMinimumSteinerTreeAlgorithm}. Obiekty algorytmów przechowują stan przebiegu, dlatego każde
+ * wywołanie tworzy własny obiekt, a obliczenia prowadzone są na współdzielonej, niezmiennej zwartej reprezentacji
+ * grafu - sam solver nie ma stanu.
+ */
+public class DefaultSteinerSolver implements SteinerSolver {
+
+    @Override
+    public SteinerSolution solve(SteinerGraph graph, int[] terminals, SolverOptions options) {
+        AbstractMinimumSteinerTreeAlgorithm algorithm = createAlgorithm(options.getAlgorithm());
+        algorithm.setReductionEnabled(options.isReductionEnabled());
+        algorithm.setQueueType(options.getQueueType());
+        algorithm.setShortestPathMode(options.getShortestPathMode());
+        algorithm.setParallelism(options.getParallelism());
+        return algorithm.solve(graph.getCompactGraph(), terminals.clone());
+    }
+
+    public static AbstractMinimumSteinerTreeAlgorithm createAlgorithm(SteinerAlgorithmEnum algorithm) {
+        switch (algorithm) {
+            case KMB:
+                return new KMB();
+            case MEHLHORN:
+                return new Mehlhorn();
+            case HAKIMI:
+                return new Hakimi();
+            case HAKIMI_BRANCH_AND_BOUND:
+                return new HakimiBranchAndBound();
+            case DREYFUS_WAGNER:
+                return new DreyfusWagner();
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+
+}
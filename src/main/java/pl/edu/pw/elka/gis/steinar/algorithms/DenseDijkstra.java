@@ -0,0 +1,96 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.model.DenseGraph;
+
+import java.util.Arrays;
+
+/**
+ * Tablicowa wersja algorytmu Dijkstry dla grafów gęstych ({@link DenseGraph}) - w każdym kroku przeglądane są
+ * odległości wszystkich nieprzetworzonych węzłów, a relaksacja obejmuje cały wiersz macierzy wag. Złożoność
+ * O(n^2) bez kolejki priorytetowej. Bufory alokowane są jednokrotnie i wykorzystywane w kolejnych przebiegach.
+ */
+public class DenseDijkstra implements ShortestPathTree {
+
+    private final DenseGraph graph;
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] parentEdge;
+    // Węzły nieprzetworzone zajmują pozycje [settledCount, n) tablicy order:
+    private final int[] order;
+
+    public DenseDijkstra(DenseGraph graph) {
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        this.distance = new int[n];
+        this.parent = new int[n];
+        this.parentEdge = new int[n];
+        this.order = new int[n];
+    }
+
+    public void compute(int source) {
+        int n = graph.getNodeCount();
+        int[] weights = graph.getWeights();
+        int[] edges = graph.getEdges();
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        Arrays.fill(parentEdge, -1);
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        distance[source] = 0;
+
+        for (int settledCount = 0; settledCount < n; ++settledCount) {
+            int minPosition = -1;
+            int minDistance = Integer.MAX_VALUE;
+            for (int i = settledCount; i < n; ++i) {
+                if (distance[order[i]] < minDistance) {
+                    minDistance = distance[order[i]];
+                    minPosition = i;
+                }
+            }
+            if (minPosition < 0) {
+                // Pozostałe węzły są nieosiągalne:
+                break;
+            }
+
+            int u = order[minPosition];
+            order[minPosition] = order[settledCount];
+            order[settledCount] = u;
+
+            int row = u * n;
+            for (int i = settledCount + 1; i < n; ++i) {
+                int v = order[i];
+                int w = weights[row + v];
+                if (w != DenseGraph.NO_EDGE && minDistance + w < distance[v]) {
+                    distance[v] = minDistance + w;
+                    parent[v] = u;
+                    parentEdge[v] = edges[row + v];
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getDistance(int node) {
+        return distance[node];
+    }
+
+    @Override
+    public int getParentEdge(int node) {
+        return parentEdge[node];
+    }
+
+    @Override
+    public int[] getShortestPathEdges(int target) {
+        int count = 0;
+        for (int node = target; parentEdge[node] >= 0; node = parent[node]) {
+            ++count;
+        }
+        int[] path = new int[count];
+        count = 0;
+        for (int node = target; parentEdge[node] >= 0; node = parent[node]) {
+            path[count++] = parentEdge[node];
+        }
+        return path;
+    }
+
+}
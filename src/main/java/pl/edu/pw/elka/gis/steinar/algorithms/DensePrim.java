@@ -0,0 +1,85 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.model.DenseGraph;
+
+import java.util.Arrays;
+
+/**
+ * Tablicowa wersja algorytmu Prima dla grafów gęstych ({@link DenseGraph}) o złożoności O(n^2), bez kolejki
+ * priorytetowej. Dla grafu niespójnego wyznaczane jest drzewo składowej zawierającej korzeń.
+ */
+public class DensePrim {
+
+    private final DenseGraph graph;
+    private int[] treeEdges = new int[0];
+    private int treeWeight;
+
+    public DensePrim(DenseGraph graph) {
+        this.graph = graph;
+    }
+
+    public void compute(int root) {
+        int n = graph.getNodeCount();
+        int[] weights = graph.getWeights();
+        int[] edges = graph.getEdges();
+        int[] keys = new int[n];
+        int[] keyEdges = new int[n];
+        // Węzły nieprzyłączone do drzewa zajmują pozycje [added, n) tablicy order:
+        int[] order = new int[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        order[root] = 0;
+        order[0] = root;
+
+        int rootRow = root * n;
+        for (int v = 0; v < n; ++v) {
+            keys[v] = weights[rootRow + v];
+            keyEdges[v] = edges[rootRow + v];
+        }
+
+        int[] tree = new int[Math.max(n - 1, 0)];
+        int count = 0;
+        int weight = 0;
+        for (int added = 1; added < n; ++added) {
+            int minPosition = -1;
+            int minKey = DenseGraph.NO_EDGE;
+            for (int i = added; i < n; ++i) {
+                if (keys[order[i]] < minKey) {
+                    minKey = keys[order[i]];
+                    minPosition = i;
+                }
+            }
+            if (minPosition < 0) {
+                break;
+            }
+
+            int u = order[minPosition];
+            order[minPosition] = order[added];
+            order[added] = u;
+            tree[count++] = keyEdges[u];
+            weight += minKey;
+
+            int row = u * n;
+            for (int i = added + 1; i < n; ++i) {
+                int v = order[i];
+                if (weights[row + v] < keys[v]) {
+                    keys[v] = weights[row + v];
+                    keyEdges[v] = edges[row + v];
+                }
+            }
+        }
+
+        this.treeEdges = Arrays.copyOf(tree, count);
+        this.treeWeight = weight;
+    }
+
+    public int[] getMinimumSpanningTreeEdges() {
+        return treeEdges.clone();
+    }
+
+    public int getMinimumSpanningTreeWeight() {
+        return treeWeight;
+    }
+
+}
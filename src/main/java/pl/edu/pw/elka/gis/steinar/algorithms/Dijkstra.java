@@ -1,11 +1,8 @@
 package pl.edu.pw.elka.gis.steinar.algorithms;
 
 import lombok.NoArgsConstructor;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Node;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Created by dawid on 29.12.17.
@@ -14,35 +11,51 @@ import java.util.List;
  * do wszystkich pozostałych).
  */
 @NoArgsConstructor
-public class Dijkstra extends AbstractSpanningTreeAlgorithm {
-
-    public List<Edge> getShortestPathEdges(Node target) {
-        List<Edge> edges = new LinkedList<>();
-
-        Node current = target;
-        Edge edge = getEdgeFromParent(current);
-        while (edge != null) {
-            edges.add(edge);
-            Node parent = getOtherNode(edge, current);
-            edge = getEdgeFromParent(parent);
+public class Dijkstra extends AbstractSpanningTreeAlgorithm implements ShortestPathTree {
+
+    /**
+     * Zwraca krawędzie najkrótszej ścieżki od źródła do zadanego węzła (w kolejności od węzła docelowego).
+     *
+     * @param target    indeks węzła docelowego
+     * @return          tablica indeksów krawędzi ścieżki
+     */
+    @Override
+    public int[] getShortestPathEdges(int target) {
+        int[] edges = new int[8];
+        int count = 0;
+
+        int current = target;
+        int edge = getParentEdge(current);
+        while (edge >= 0) {
+            if (count == edges.length) {
+                edges = Arrays.copyOf(edges, 2 * count);
+            }
+            edges[count++] = edge;
+            int parent = getGraph().getOpposite(edge, current);
+            edge = getParentEdge(parent);
             current = parent;
         }
 
-        return edges;
+        return Arrays.copyOf(edges, count);
     }
 
-    private Node getOtherNode(Edge edge, Node node) {
-        return edge.getOpposite(node);
+    /**
+     * Odległość od źródła do zadanego węzła (Integer.MAX_VALUE dla węzłów nieosiągalnych).
+     */
+    @Override
+    public int getDistance(int node) {
+        SearchWorkspace workspace = getWorkspace();
+        return workspace.isSettled(node) ? workspace.getDistance(node) : Integer.MAX_VALUE;
     }
 
-    private Edge getEdgeFromParent(Node node) {
-        NodeData nodeData = node.getAttribute(getResultAttributeName());
-        return nodeData.edgeFromParent;
+    @Override
+    public int getParentEdge(int node) {
+        return getWorkspace().getParentEdge(node);
     }
 
     @Override
-    protected int relaxFunction(Edge uv, NodeData uData) {
-        return uData.distance + getWeight(uv);
+    protected int relaxFunction(int uvWeight, int uDistance) {
+        return uDistance + uvWeight;
     }
 
 }
@@ -0,0 +1,49 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+/**
+ * Struktura zbiorów rozłącznych (union-find) na elementach 0..n-1 z kompresją ścieżek (przez połowienie)
+ * i łączeniem według rangi.
+ */
+class DisjointSets {
+
+    private final int[] parent;
+    private final byte[] rank;
+
+    DisjointSets(int size) {
+        this.parent = new int[size];
+        this.rank = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            parent[i] = i;
+        }
+    }
+
+    int find(int element) {
+        while (parent[element] != element) {
+            parent[element] = parent[parent[element]];
+            element = parent[element];
+        }
+        return element;
+    }
+
+    /**
+     * Połączenie zbiorów zawierających podane elementy.
+     *
+     * @return  false, jeśli elementy należały już do jednego zbioru
+     */
+    boolean union(int a, int b) {
+        int rootA = find(a), rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            ++rank[rootA];
+        }
+        return true;
+    }
+
+}
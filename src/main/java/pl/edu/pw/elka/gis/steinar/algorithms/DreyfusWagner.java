@@ -0,0 +1,193 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.NoArgsConstructor;
+import pl.edu.pw.elka.gis.steinar.algorithms.exceptions.DreyfusWagnerTooManyTerminalsException;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.DaryHeap;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Implementacja algorytmu dokładnego Dreyfusa-Wagnera w wariancie Ericksona-Monmy-Veinotta.
+ *
+ * Dla każdego podzbioru D terminali (z wyjątkiem terminala-korzenia) i każdego węzła v wyznaczana jest waga
+ * minimalnego drzewa Steinera łączącego D z v. Wartości dla podzbioru otrzymywane są najpierw przez złączenie
+ * w węźle v dwóch drzew dla rozłącznych podzbiorów, a następnie jednym przebiegiem algorytmu Dijkstry z wieloma
+ * źródłami, w którym etykietami początkowymi są wyniki złączeń. Tablice programowania dynamicznego indeksowane
+ * są maską bitową podzbioru, a drzewo odtwarzane jest z zapamiętanych decyzji (złączenie lub krawędź ścieżki).
+ *
+ * Złożoność czasowa O(3^k n + 2^k (m + n) log n) dla k terminali - algorytm nadaje się dla dużych grafów
+ * z niewielką liczbą terminali.
+ */
+@NoArgsConstructor
+public class DreyfusWagner extends AbstractMinimumSteinerTreeAlgorithm {
+
+    /**
+     * Maksymalna liczba terminali (rozmiar tablic rośnie jak 2^(k-1) n, a czas obliczeń jak 3^k n).
+     */
+    public static final int MAX_TERMINAL_COUNT = 16;
+
+    // Waga "nieskończona" - suma dwóch takich wartości nie przekracza zakresu typu int:
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    // Decyzja dla etykiety początkowej podzbioru jednoelementowego (terminal):
+    private static final int LEAF = Integer.MIN_VALUE;
+    // Brak decyzji (węzeł nieosiągalny dla podzbioru) - różny od indeksów krawędzi i kodów złączeń:
+    private static final int NONE = Integer.MIN_VALUE + 1;
+
+    @Override
+    protected int[] findMinimumSteinerTree(CompactGraph graph, int[] terminals) {
+        if (terminals.length > MAX_TERMINAL_COUNT) {
+            throw new DreyfusWagnerTooManyTerminalsException(MAX_TERMINAL_COUNT);
+        }
+
+        int nodeCount = graph.getNodeCount();
+        int k = terminals.length - 1;
+        int root = terminals[k];
+        int fullSet = (1 << k) - 1;
+
+        // costs[D][v] - waga drzewa łączącego podzbiór D z węzłem v; decisions[D][v] - indeks krawędzi
+        // (przedłużenie ścieżki), -(S + 1) dla złączenia podzbiorów S i D \ S, LEAF albo NONE:
+        int[][] costs = new int[fullSet + 1][];
+        int[][] decisions = new int[fullSet + 1][];
+        IntPriorityQueue queue = createQueue(nodeCount);
+
+        for (int set = 1; set <= fullSet; ++set) {
+            int[] cost = new int[nodeCount];
+            int[] decision = new int[nodeCount];
+            Arrays.fill(cost, INFINITY);
+            Arrays.fill(decision, NONE);
+            costs[set] = cost;
+            decisions[set] = decision;
+
+            if (Integer.bitCount(set) == 1) {
+                int terminal = terminals[Integer.numberOfTrailingZeros(set)];
+                cost[terminal] = 0;
+                decision[terminal] = LEAF;
+            } else {
+                mergeSubsets(costs, set, cost, decision);
+            }
+            extendPaths(graph, queue, cost, decision);
+        }
+
+        if (costs[fullSet][root] >= INFINITY) {
+            throw new IllegalStateException("Terminals are not connected - no Steiner tree exists.");
+        }
+        return reconstructTree(graph, decisions, fullSet, root);
+    }
+
+    private IntPriorityQueue createQueue(int nodeCount) {
+        // Etykiety początkowe mogą się różnić o więcej niż maksymalna waga krawędzi, więc kolejka kubełkowa
+        // nie może zostać użyta:
+        if (queueType == PriorityQueueType.BUCKET_QUEUE || queueType == PriorityQueueType.AUTO) {
+            return new DaryHeap(nodeCount);
+        }
+        return queueType.create(nodeCount, 0);
+    }
+
+    /**
+     * Złączenie w każdym węźle drzew dla par rozłącznych podzbiorów (S, set \ S). Rozważane są jedynie podzbiory S
+     * zawierające najmłodszy element zbioru, aby każdą parę przejrzeć raz.
+     */
+    private static void mergeSubsets(int[][] costs, int set, int[] cost, int[] decision) {
+        int lowestBit = set & -set;
+        for (int subset = (set - 1) & set; subset != 0; subset = (subset - 1) & set) {
+            if ((subset & lowestBit) == 0) {
+                continue;
+            }
+            int[] first = costs[subset];
+            int[] second = costs[set ^ subset];
+            int merged = -(subset + 1);
+            for (int v = 0; v < cost.length; ++v) {
+                int c = first[v] + second[v];
+                if (c < cost[v]) {
+                    cost[v] = c;
+                    decision[v] = merged;
+                }
+            }
+        }
+    }
+
+    /**
+     * Algorytm Dijkstry z etykietami początkowymi cost - przedłużenie drzew ścieżkami do pozostałych węzłów.
+     */
+    private static void extendPaths(CompactGraph graph, IntPriorityQueue queue, int[] cost, int[] decision) {
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int[] edgeIds = graph.getEdgeIds();
+
+        queue.clear();
+        for (int v = 0; v < cost.length; ++v) {
+            if (cost[v] < INFINITY) {
+                queue.add(v, cost[v]);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            int uCost = cost[u];
+            for (int i = graph.getFirstArc(u), end = graph.getEndArc(u); i < end; ++i) {
+                int v = targets[i];
+                int alt = uCost + weights[i];
+                if (alt < cost[v]) {
+                    boolean queued = cost[v] < INFINITY;
+                    cost[v] = alt;
+                    decision[v] = edgeIds[i];
+                    if (!queued) {
+                        queue.add(v, alt);
+                    } else if (queue.contains(v)) {
+                        queue.decreaseKey(v, alt);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Odtworzenie krawędzi drzewa dla pełnego zbioru terminali z korzeniem w ostatnim terminalu.
+     */
+    private static int[] reconstructTree(CompactGraph graph, int[][] decisions, int fullSet, int root) {
+        boolean[] used = new boolean[graph.getEdgeCount()];
+        int[] edges = new int[graph.getEdgeCount()];
+        int edgeCount = 0;
+
+        // Stos par (podzbiór, węzeł) do rozwinięcia:
+        int[] stackSets = new int[16];
+        int[] stackNodes = new int[16];
+        int size = 0;
+        stackSets[size] = fullSet;
+        stackNodes[size++] = root;
+
+        while (size > 0) {
+            int set = stackSets[--size];
+            int node = stackNodes[size];
+            int decision = decisions[set][node];
+
+            if (size + 2 > stackSets.length) {
+                stackSets = Arrays.copyOf(stackSets, 2 * stackSets.length);
+                stackNodes = Arrays.copyOf(stackNodes, 2 * stackNodes.length);
+            }
+            if (decision == LEAF) {
+                continue;
+            }
+            if (decision < 0) {
+                int subset = -decision - 1;
+                stackSets[size] = subset;
+                stackNodes[size++] = node;
+                stackSets[size] = set ^ subset;
+                stackNodes[size++] = node;
+            } else {
+                if (!used[decision]) {
+                    used[decision] = true;
+                    edges[edgeCount++] = decision;
+                }
+                stackSets[size] = set;
+                stackNodes[size++] = graph.getOpposite(decision, node);
+            }
+        }
+
+        return Arrays.copyOf(edges, edgeCount);
+    }
+
+}
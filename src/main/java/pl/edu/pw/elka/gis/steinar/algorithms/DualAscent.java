@@ -0,0 +1,214 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.DaryHeap;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Dolne ograniczenie wagi minimalnego drzewa Steinera wyznaczane metodą wzrostu dualnego (dual ascent) Wonga.
+ *
+ * Graf nieskierowany zastępowany jest grafem dwukierunkowym (krawędź e odpowiada łukom 2e: node0 -> node1
+ * i 2e + 1: node1 -> node0), a drzewo Steinera - arborescencją o korzeniu w pierwszym terminalu. Dla terminala t
+ * wyznaczany jest zbiór W węzłów, z których t jest osiągalny łukami o zerowym koszcie zredukowanym. Dopóki W nie
+ * zawiera korzenia, koszty zredukowane łuków wchodzących do W zmniejszane są o najmniejszy z nich, a ograniczenie
+ * rośnie o tę wartość. Przetwarzany jest zawsze terminal o najmniejszym (ostatnio wyznaczonym) zbiorze W.
+ *
+ * Poza ograniczeniem dostępne są koszty zredukowane łuków oraz oparte na nich dolne ograniczenia wagi drzew
+ * zawierających dany węzeł, z których mogą korzystać algorytmy dokładne do odcinania gałęzi.
+ */
+public class DualAscent {
+
+    private final CompactGraph graph;
+    private final int[] terminals;
+
+    @Getter
+    private long lowerBound;
+    /**
+     * Liczba wykonanych kroków wzrostu dualnego.
+     */
+    @Getter
+    private int ascentCount;
+
+    private int[] reducedCosts;
+    private int[] rootDistances;
+    private int[] terminalDistances;
+
+    public DualAscent(CompactGraph graph, int[] terminals) {
+        this.graph = graph;
+        this.terminals = terminals;
+    }
+
+    public void compute() {
+        int nodeCount = graph.getNodeCount();
+        this.reducedCosts = new int[2 * graph.getEdgeCount()];
+        for (int e = 0; e < graph.getEdgeCount(); ++e) {
+            reducedCosts[2 * e] = reducedCosts[2 * e + 1] = graph.getEdgeWeight(e);
+        }
+        this.lowerBound = 0;
+        this.ascentCount = 0;
+        this.rootDistances = null;
+        this.terminalDistances = null;
+        if (terminals.length < 2) {
+            return;
+        }
+
+        int root = terminals[0];
+        int[] component = new int[nodeCount];
+        int[] inComponent = new int[nodeCount];
+        Arrays.fill(inComponent, -1);
+
+        // Terminale aktywne w kolejce według rozmiaru ostatnio wyznaczonego zbioru W:
+        IntPriorityQueue active = new DaryHeap(nodeCount);
+        for (int i = 1; i < terminals.length; ++i) {
+            if (terminals[i] != root && !active.contains(terminals[i])) {
+                active.add(terminals[i], 1);
+            }
+        }
+
+        int[] targets = graph.getTargets();
+        int[] edgeIds = graph.getEdgeIds();
+        int stamp = 0;
+        while (!active.isEmpty()) {
+            int t = active.extractMin();
+            int size = collectComponent(t, component, inComponent, ++stamp);
+            if (inComponent[root] == stamp) {
+                // Terminal połączony z korzeniem - nieaktywny:
+                continue;
+            }
+            if (size > active.getKey(t)) {
+                // Zbiór urósł od ostatniego przetworzenia - terminal wraca do kolejki z aktualnym rozmiarem:
+                active.add(t, size);
+                continue;
+            }
+
+            int delta = Integer.MAX_VALUE;
+            for (int i = 0; i < size; ++i) {
+                int v = component[i];
+                for (int a = graph.getFirstArc(v), end = graph.getEndArc(v); a < end; ++a) {
+                    int u = targets[a];
+                    int arc = arcInto(edgeIds[a], v);
+                    if (inComponent[u] != stamp && reducedCosts[arc] < delta) {
+                        delta = reducedCosts[arc];
+                    }
+                }
+            }
+            if (delta == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Terminals are not connected - no Steiner tree exists.");
+            }
+
+            for (int i = 0; i < size; ++i) {
+                int v = component[i];
+                for (int a = graph.getFirstArc(v), end = graph.getEndArc(v); a < end; ++a) {
+                    if (inComponent[targets[a]] != stamp) {
+                        reducedCosts[arcInto(edgeIds[a], v)] -= delta;
+                    }
+                }
+            }
+            lowerBound += delta;
+            ++ascentCount;
+            active.add(t, size);
+        }
+    }
+
+    /**
+     * Koszt zredukowany łuku (łuk 2e prowadzi od node0 do node1 krawędzi e, łuk 2e + 1 - w przeciwną stronę).
+     */
+    public int getReducedCost(int arc) {
+        return reducedCosts[arc];
+    }
+
+    /**
+     * Dolne ograniczenie wagi drzewa Steinera zawierającego dany węzeł: ograniczenie dualne powiększone o koszt
+     * zredukowany ścieżki od korzenia do węzła i od węzła do najbliższego terminala (ścieżki te są rozłącznymi
+     * fragmentami arborescencji).
+     *
+     * @param node  indeks węzła
+     * @return      dolne ograniczenie (Long.MAX_VALUE, jeśli drzewo nie może zawierać węzła)
+     */
+    public long getNodeLowerBound(int node) {
+        if (rootDistances == null) {
+            computeNodeDistances();
+        }
+        if (rootDistances[node] == Integer.MAX_VALUE || terminalDistances[node] == Integer.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return lowerBound + rootDistances[node] + terminalDistances[node];
+    }
+
+    /**
+     * Węzły, z których terminal t jest osiągalny łukami o zerowym koszcie zredukowanym (przeszukiwanie wstecz).
+     *
+     * @return  liczba węzłów zbioru (zapisanych na początku tablicy component)
+     */
+    private int collectComponent(int t, int[] component, int[] inComponent, int stamp) {
+        int[] targets = graph.getTargets();
+        int[] edgeIds = graph.getEdgeIds();
+        int size = 0;
+        component[size++] = t;
+        inComponent[t] = stamp;
+        for (int head = 0; head < size; ++head) {
+            int v = component[head];
+            for (int a = graph.getFirstArc(v), end = graph.getEndArc(v); a < end; ++a) {
+                int u = targets[a];
+                if (inComponent[u] != stamp && reducedCosts[arcInto(edgeIds[a], v)] == 0) {
+                    inComponent[u] = stamp;
+                    component[size++] = u;
+                }
+            }
+        }
+        return size;
+    }
+
+    private int arcInto(int edge, int head) {
+        return graph.getEdgeNode1(edge) == head ? 2 * edge : 2 * edge + 1;
+    }
+
+    private void computeNodeDistances() {
+        int root = terminals[0];
+        this.rootDistances = reducedCostDistances(new int[]{root}, true);
+        this.terminalDistances = reducedCostDistances(Arrays.copyOfRange(terminals, 1, terminals.length), false);
+    }
+
+    /**
+     * Odległości w kosztach zredukowanych od zbioru źródeł (forward - wzdłuż łuków) albo do zbioru celów
+     * (wstecz - przeciwnie do łuków).
+     */
+    private int[] reducedCostDistances(int[] sources, boolean forward) {
+        int nodeCount = graph.getNodeCount();
+        int[] distance = new int[nodeCount];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        IntPriorityQueue queue = new DaryHeap(nodeCount);
+        for (int source : sources) {
+            if (distance[source] != 0) {
+                distance[source] = 0;
+                queue.add(source, 0);
+            }
+        }
+
+        int[] targets = graph.getTargets();
+        int[] edgeIds = graph.getEdgeIds();
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            for (int a = graph.getFirstArc(u), end = graph.getEndArc(u); a < end; ++a) {
+                int v = targets[a];
+                int edge = edgeIds[a];
+                // Łuk u -> v przy przeszukiwaniu w przód, v -> u przy przeszukiwaniu wstecz:
+                int cost = reducedCosts[forward ? arcInto(edge, v) : arcInto(edge, u)];
+                int alt = distance[u] + cost;
+                if (alt < distance[v]) {
+                    if (distance[v] == Integer.MAX_VALUE) {
+                        queue.add(v, alt);
+                    } else {
+                        queue.decreaseKey(v, alt);
+                    }
+                    distance[v] = alt;
+                }
+            }
+        }
+        return distance;
+    }
+
+}
@@ -0,0 +1,358 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import lombok.Setter;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Drzewo Steinera utrzymywane przy dodawaniu i usuwaniu terminali w grafie o stałej strukturze.
+ *
+ * Początkowe drzewo wyznacza zadany algorytm. Nowy terminal spoza drzewa dołączany jest najkrótszą ścieżką
+ * do najbliższego węzła drzewa (algorytm Dijkstry ze wszystkich węzłów drzewa jako źródeł). Usunięty terminal
+ * będący liściem jest odcinany wraz z łańcuchem nieterminalnych liści; terminal stopnia 2 leży na ścieżce kluczowej
+ * (ścieżce, której węzły wewnętrzne są nieterminalami stopnia 2) - ścieżka jest usuwana, a powstałe dwie części
+ * drzewa łączone są najkrótszą ścieżką między nimi, nie dłuższą od usuniętej. Terminal o większym stopniu pozostaje
+ * w drzewie jako węzeł Steinera.
+ *
+ * Zmiany lokalne mogą z czasem pogarszać jakość drzewa, dlatego co reoptimizationInterval zmian drzewo wyznaczane
+ * jest od nowa przez algorytm (i zastępuje bieżące, jeśli jest lżejsze). Po każdej zmianie drzewo zapisywane jest
+ * jako rozwiązanie w {@link SteinerGraph}.
+ */
+public class DynamicSteinerTree {
+
+    public static final int DEFAULT_REOPTIMIZATION_INTERVAL = 100;
+
+    @Getter
+    private final SteinerGraph steinerGraph;
+    @Getter
+    private final AbstractMinimumSteinerTreeAlgorithm algorithm;
+    /**
+     * Liczba zmian, po której drzewo wyznaczane jest ponownie przez algorytm (0 - bez ponownego wyznaczania).
+     */
+    @Getter
+    @Setter
+    private int reoptimizationInterval = DEFAULT_REOPTIMIZATION_INTERVAL;
+    @Getter
+    private int treeWeight;
+    @Getter
+    private int terminalCount;
+    /**
+     * Liczba wykonanych zmian zbioru terminali.
+     */
+    @Getter
+    private long updateCount;
+    /**
+     * Liczba ponownych wyznaczeń drzewa przez algorytm (bez wyznaczenia początkowego).
+     */
+    @Getter
+    private long reoptimizationCount;
+
+    private CompactGraph graph;
+    private boolean[] terminalMask;
+    private BitSet treeEdges;
+    private int[] treeDegrees;
+    private boolean[] treeNodes;
+    private int treeNodeCount;
+    private int updatesSinceReoptimization;
+    private Dijkstra dijkstra;
+
+    public DynamicSteinerTree(SteinerGraph steinerGraph, AbstractMinimumSteinerTreeAlgorithm algorithm) {
+        this.steinerGraph = steinerGraph;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Wyznaczenie początkowego drzewa dla bieżącego zbioru terminali grafu.
+     */
+    public void init() {
+        this.graph = steinerGraph.getCompactGraph();
+        this.terminalMask = new boolean[graph.getNodeCount()];
+        this.terminalCount = 0;
+        for (int terminal : steinerGraph.getTerminalIndices()) {
+            terminalMask[terminal] = true;
+            ++terminalCount;
+        }
+        this.dijkstra = new Dijkstra();
+        this.dijkstra.setWorkspace(SearchWorkspace.create(graph, algorithm.getQueueType()));
+        this.treeEdges = null;
+        this.updateCount = 0;
+        this.reoptimizationCount = 0;
+        this.updatesSinceReoptimization = 0;
+
+        computeTree();
+        writeResultTree();
+    }
+
+    /**
+     * Dodanie terminala - węzeł spoza drzewa dołączany jest najkrótszą ścieżką do drzewa.
+     *
+     * @param nodeId    id węzła
+     */
+    public void addTerminal(String nodeId) {
+        int node = getNodeIndex(nodeId);
+        if (terminalMask[node]) {
+            return;
+        }
+        steinerGraph.markAsTerminal(nodeId);
+        terminalMask[node] = true;
+        ++terminalCount;
+
+        if (treeNodeCount == 0) {
+            addTreeNode(node);
+        } else if (!treeNodes[node]) {
+            connectToTree(node);
+        }
+        afterUpdate();
+    }
+
+    /**
+     * Usunięcie terminala - odcięcie zbędnej części drzewa albo zastąpienie ścieżki kluczowej przez węzeł.
+     *
+     * @param nodeId    id węzła
+     */
+    public void removeTerminal(String nodeId) {
+        int node = getNodeIndex(nodeId);
+        if (!terminalMask[node]) {
+            return;
+        }
+        steinerGraph.unmarkAsTerminal(nodeId);
+        terminalMask[node] = false;
+        --terminalCount;
+
+        if (treeDegrees[node] <= 1) {
+            pruneLeaves(node);
+        } else if (treeDegrees[node] == 2) {
+            replaceKeyPath(node);
+        }
+        afterUpdate();
+    }
+
+    /**
+     * Ponowne wyznaczenie drzewa przez algorytm - wynik zastępuje bieżące drzewo, jeśli jest od niego lżejszy.
+     */
+    public void reoptimize() {
+        ++reoptimizationCount;
+        updatesSinceReoptimization = 0;
+        computeTree();
+        writeResultTree();
+    }
+
+    public int[] getTreeEdges() {
+        return treeEdges.stream().toArray();
+    }
+
+    private void afterUpdate() {
+        ++updateCount;
+        if (reoptimizationInterval > 0 && ++updatesSinceReoptimization >= reoptimizationInterval) {
+            reoptimize();
+        } else {
+            writeResultTree();
+        }
+    }
+
+    private void computeTree() {
+        algorithm.init(steinerGraph);
+        algorithm.clear();
+        algorithm.compute();
+        int[] edges = steinerGraph.getResultTreeEdgeIndices();
+        if (treeEdges != null && graph.getTotalWeight(edges, edges.length) >= treeWeight) {
+            return;
+        }
+
+        this.treeEdges = new BitSet(graph.getEdgeCount());
+        this.treeDegrees = new int[graph.getNodeCount()];
+        this.treeNodes = new boolean[graph.getNodeCount()];
+        this.treeNodeCount = 0;
+        this.treeWeight = 0;
+        for (int edge : edges) {
+            addTreeEdge(edge);
+        }
+        for (int node = 0; node < graph.getNodeCount(); ++node) {
+            if (terminalMask[node] && treeNodeCount == 0) {
+                addTreeNode(node);
+            }
+            pruneLeaves(node);
+        }
+    }
+
+    private void writeResultTree() {
+        steinerGraph.clearSolution();
+        steinerGraph.setResultTreeEdges(getTreeEdges());
+    }
+
+    /**
+     * Dołączenie węzła do drzewa najkrótszą ścieżką do najbliższego węzła drzewa.
+     */
+    private void connectToTree(int node) {
+        dijkstra.init(graph, getTreeNodes());
+        dijkstra.setTargets(new int[]{node});
+        dijkstra.compute();
+        if (dijkstra.getDistance(node) == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Terminal is not connected with the current Steiner tree.");
+        }
+        for (int edge : dijkstra.getShortestPathEdges(node)) {
+            addTreeEdge(edge);
+        }
+    }
+
+    /**
+     * Odcięcie łańcucha nieterminalnych liści zaczynającego się w zadanym węźle.
+     */
+    private void pruneLeaves(int node) {
+        while (treeNodes[node] && !terminalMask[node] && treeDegrees[node] <= 1) {
+            int edge = treeDegrees[node] == 1 ? findTreeEdge(node, -1) : -1;
+            if (edge < 0) {
+                removeTreeNode(node);
+                return;
+            }
+            removeTreeEdge(edge);
+            removeTreeNode(node);
+            node = graph.getOpposite(edge, node);
+        }
+    }
+
+    /**
+     * Usunięcie ścieżki kluczowej przechodzącej przez węzeł stopnia 2 i połączenie obu części drzewa najkrótszą
+     * ścieżką między nimi (nie dłuższą od usuniętej ścieżki, która ogranicza zasięg przeszukiwania).
+     */
+    private void replaceKeyPath(int node) {
+        int[] ends = new int[2];
+        int keyPathWeight = 0;
+        int first = findTreeEdge(node, -1);
+        int[] startEdges = {first, findTreeEdge(node, first)};
+        for (int side = 0; side < 2; ++side) {
+            int edge = startEdges[side];
+            int current = node;
+            while (true) {
+                keyPathWeight += graph.getEdgeWeight(edge);
+                removeTreeEdge(edge);
+                current = graph.getOpposite(edge, current);
+                if (terminalMask[current] || treeDegrees[current] != 1) {
+                    break;
+                }
+                // Węzeł wewnętrzny ścieżki (przed usunięciem krawędzi miał stopień 2):
+                edge = findTreeEdge(current, -1);
+                removeTreeNode(current);
+            }
+            ends[side] = current;
+        }
+        removeTreeNode(node);
+
+        // Część drzewa zawierająca pierwszy koniec ścieżki staje się zbiorem źródeł przeszukiwania:
+        boolean[] sourcePart = new boolean[graph.getNodeCount()];
+        int[] sources = collectTreeComponent(ends[0], sourcePart);
+        dijkstra.init(graph, sources);
+        dijkstra.setDistanceLimit(keyPathWeight);
+        dijkstra.compute();
+
+        int best = ends[1];
+        for (int v = 0; v < graph.getNodeCount(); ++v) {
+            if (treeNodes[v] && !sourcePart[v] && dijkstra.getDistance(v) < dijkstra.getDistance(best)) {
+                best = v;
+            }
+        }
+
+        // Przy zerowych wagach ścieżka może przechodzić przez inne węzły drugiej części - dołączany jest jedynie
+        // odcinek od ostatniego z nich:
+        int[] path = dijkstra.getShortestPathEdges(best);
+        int cut = 0;
+        for (int i = 0, current = best; i < path.length; ++i) {
+            current = graph.getOpposite(path[i], current);
+            if (treeNodes[current] && !sourcePart[current]) {
+                cut = i + 1;
+            }
+        }
+        for (int i = cut; i < path.length; ++i) {
+            addTreeEdge(path[i]);
+        }
+    }
+
+    private int[] collectTreeComponent(int start, boolean[] component) {
+        int[] nodes = new int[treeNodeCount];
+        int[] targets = graph.getTargets();
+        int[] edgeIds = graph.getEdgeIds();
+        int size = 0;
+        nodes[size++] = start;
+        component[start] = true;
+        for (int head = 0; head < size; ++head) {
+            int u = nodes[head];
+            for (int a = graph.getFirstArc(u), end = graph.getEndArc(u); a < end; ++a) {
+                int v = targets[a];
+                if (!component[v] && treeEdges.get(edgeIds[a])) {
+                    component[v] = true;
+                    nodes[size++] = v;
+                }
+            }
+        }
+        return Arrays.copyOf(nodes, size);
+    }
+
+    /**
+     * Krawędź drzewa incydentna z węzłem, różna od zadanej (-1, jeśli nie istnieje).
+     */
+    private int findTreeEdge(int node, int otherThan) {
+        int[] edgeIds = graph.getEdgeIds();
+        for (int a = graph.getFirstArc(node), end = graph.getEndArc(node); a < end; ++a) {
+            if (edgeIds[a] != otherThan && treeEdges.get(edgeIds[a])) {
+                return edgeIds[a];
+            }
+        }
+        return -1;
+    }
+
+    private int[] getTreeNodes() {
+        int[] nodes = new int[treeNodeCount];
+        for (int node = 0, count = 0; count < treeNodeCount; ++node) {
+            if (treeNodes[node]) {
+                nodes[count++] = node;
+            }
+        }
+        return nodes;
+    }
+
+    private void addTreeEdge(int edge) {
+        if (treeEdges.get(edge)) {
+            return;
+        }
+        treeEdges.set(edge);
+        treeWeight += graph.getEdgeWeight(edge);
+        int u = graph.getEdgeNode0(edge), v = graph.getEdgeNode1(edge);
+        addTreeNode(u);
+        addTreeNode(v);
+        ++treeDegrees[u];
+        ++treeDegrees[v];
+    }
+
+    private void removeTreeEdge(int edge) {
+        treeEdges.clear(edge);
+        treeWeight -= graph.getEdgeWeight(edge);
+        --treeDegrees[graph.getEdgeNode0(edge)];
+        --treeDegrees[graph.getEdgeNode1(edge)];
+    }
+
+    private void addTreeNode(int node) {
+        if (!treeNodes[node]) {
+            treeNodes[node] = true;
+            ++treeNodeCount;
+        }
+    }
+
+    private void removeTreeNode(int node) {
+        if (treeNodes[node]) {
+            treeNodes[node] = false;
+            --treeNodeCount;
+        }
+    }
+
+    private int getNodeIndex(String nodeId) {
+        if (graph == null) {
+            throw new IllegalStateException("Dynamic Steiner tree not initialized!");
+        }
+        return steinerGraph.getGraph().getNode(nodeId).getIndex();
+    }
+
+}
@@ -0,0 +1,558 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.DaryHeap;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Redukcja instancji problemu drzewa Steinera przed uruchomieniem właściwego algorytmu.
+ *
+ * Reguły stosowane są w pętli, dopóki którakolwiek z nich zmienia graf:
+ * <ul>
+ *     <li>usunięcie pętli i krawędzi równoległych cięższych od najlżejszej krawędzi między tymi samymi węzłami,</li>
+ *     <li>usunięcie wierzchołków nieterminalnych stopnia 0 i 1,</li>
+ *     <li>zastąpienie wierzchołka nieterminalnego stopnia 2 jedną krawędzią o sumarycznej wadze,</li>
+ *     <li>ustalenie krawędzi terminala stopnia 1 - krawędź należy do każdego rozwiązania, a terminal zostaje
+ *     scalony z sąsiadem,</li>
+ *     <li>usunięcie krawędzi długich (istnieje krótsza ścieżka między jej końcami) oraz krawędzi, których waga
+ *     przekracza oszacowanie odległości specjalnej max(d(u, z), d(v, z)) dla pewnego terminala z.</li>
+ * </ul>
+ * Każda krawędź grafu zredukowanego pamięta krawędzie grafu oryginalnego, które reprezentuje, więc rozwiązanie
+ * instancji zredukowanej można rozwinąć do rozwiązania oryginalnej ({@link #expand(int[])}). Testy odległościowe
+ * usuwają jedynie krawędzie ostro dłuższe od alternatywnej ścieżki, co wymaga dodatnich wag krawędzi.
+ */
+public class GraphReduction {
+
+    private final CompactGraph originalGraph;
+    private final int[] originalTerminals;
+
+    // Graf roboczy - krawędzie (również utworzone przez ściąganie ścieżek) i listy incydencji węzłów:
+    private int[] edgeNode0;
+    private int[] edgeNode1;
+    private int[] edgeWeight;
+    private int[][] edgeOrigins;
+    private boolean[] edgeAlive;
+    private int workingEdgeCount;
+    private int[][] incidentEdges;
+    private int[] degrees;
+    private boolean[] nodeAlive;
+    private boolean[] terminal;
+    private int terminalCount;
+
+    // Krawędzie grafu oryginalnego należące do każdego rozwiązania:
+    private int[] fixedEdges;
+    private int fixedEdgeCount;
+
+    @Getter
+    private CompactGraph reducedGraph;
+    @Getter
+    private int[] reducedTerminals;
+    // Krawędzie grafu oryginalnego odpowiadające krawędziom grafu zredukowanego:
+    private int[][] reducedEdgeOrigins;
+
+    /**
+     * Liczba przebiegów pętli redukcji.
+     */
+    @Getter
+    private int roundCount;
+    @Getter
+    private int removedNodeCount;
+    @Getter
+    private int contractedNodeCount;
+    @Getter
+    private int removedParallelEdgeCount;
+    @Getter
+    private int removedLongEdgeCount;
+    @Getter
+    private int removedSpecialDistanceEdgeCount;
+    /**
+     * Sumaryczna waga krawędzi ustalonych przez redukcję.
+     */
+    @Getter
+    private int fixedWeight;
+
+    public GraphReduction(CompactGraph graph, int[] terminals) {
+        this.originalGraph = graph;
+        this.originalTerminals = terminals;
+    }
+
+    /**
+     * Wykonanie redukcji - po jej zakończeniu dostępne są graf i terminale instancji zredukowanej.
+     */
+    public void reduce() {
+        initWorkingGraph();
+
+        boolean changed = true;
+        while (changed && terminalCount > 1) {
+            ++roundCount;
+            changed = removeParallelEdges();
+            changed |= reduceLowDegreeNodes();
+            // Testy odległościowe są kosztowniejsze - uruchamiane, gdy proste reguły nie zmieniają grafu:
+            if (!changed && terminalCount > 1) {
+                changed = removeLongEdges();
+                changed |= removeSpecialDistanceEdges();
+            }
+        }
+
+        buildReducedGraph();
+    }
+
+    /**
+     * Rozwinięcie rozwiązania instancji zredukowanej do krawędzi grafu oryginalnego (wraz z krawędziami
+     * ustalonymi przez redukcję).
+     *
+     * @param reducedTreeEdges  indeksy krawędzi drzewa w grafie zredukowanym
+     * @return                  indeksy krawędzi drzewa w grafie oryginalnym
+     */
+    public int[] expand(int[] reducedTreeEdges) {
+        int count = fixedEdgeCount;
+        for (int edge : reducedTreeEdges) {
+            count += reducedEdgeOrigins[edge].length;
+        }
+
+        int[] edges = Arrays.copyOf(fixedEdges, count);
+        int position = fixedEdgeCount;
+        for (int edge : reducedTreeEdges) {
+            int[] origins = reducedEdgeOrigins[edge];
+            System.arraycopy(origins, 0, edges, position, origins.length);
+            position += origins.length;
+        }
+        return edges;
+    }
+
+    public int getOriginalNodeCount() {
+        return originalGraph.getNodeCount();
+    }
+
+    public int getOriginalEdgeCount() {
+        return originalGraph.getEdgeCount();
+    }
+
+    public int getOriginalTerminalCount() {
+        return originalTerminals.length;
+    }
+
+    public int getFixedEdgeCount() {
+        return fixedEdgeCount;
+    }
+
+    /**
+     * Zwraca kopię statystyk wykonanej redukcji.
+     *
+     * @return  statystyki redukcji
+     */
+    public ReductionStatistics getStatistics() {
+        return new ReductionStatistics(getOriginalNodeCount(), getOriginalEdgeCount(), getOriginalTerminalCount(),
+                reducedGraph.getNodeCount(), reducedGraph.getEdgeCount(), reducedTerminals.length, fixedEdgeCount,
+                roundCount);
+    }
+
+    private void initWorkingGraph() {
+        int nodeCount = originalGraph.getNodeCount();
+        int edgeCount = originalGraph.getEdgeCount();
+
+        // Każde ściągnięcie ścieżki usuwa dwie krawędzie i dodaje jedną, więc 2m pozycji wystarcza:
+        this.edgeNode0 = new int[2 * edgeCount];
+        this.edgeNode1 = new int[2 * edgeCount];
+        this.edgeWeight = new int[2 * edgeCount];
+        this.edgeOrigins = new int[2 * edgeCount][];
+        this.edgeAlive = new boolean[2 * edgeCount];
+        this.workingEdgeCount = 0;
+
+        this.incidentEdges = new int[nodeCount][];
+        this.degrees = new int[nodeCount];
+        this.nodeAlive = new boolean[nodeCount];
+        this.terminal = new boolean[nodeCount];
+        Arrays.fill(nodeAlive, true);
+        for (int v = 0; v < nodeCount; ++v) {
+            incidentEdges[v] = new int[Math.max(originalGraph.getDegree(v), 2)];
+        }
+        for (int t : originalTerminals) {
+            terminal[t] = true;
+        }
+        this.terminalCount = originalTerminals.length;
+
+        for (int e = 0; e < edgeCount; ++e) {
+            addEdge(originalGraph.getEdgeNode0(e), originalGraph.getEdgeNode1(e), originalGraph.getEdgeWeight(e),
+                    new int[]{e});
+        }
+
+        this.fixedEdges = new int[Math.max(nodeCount - 1, 0)];
+        this.fixedEdgeCount = 0;
+        this.fixedWeight = 0;
+        this.roundCount = 0;
+        this.removedNodeCount = 0;
+        this.contractedNodeCount = 0;
+        this.removedParallelEdgeCount = 0;
+        this.removedLongEdgeCount = 0;
+        this.removedSpecialDistanceEdgeCount = 0;
+    }
+
+    private void addEdge(int u, int v, int weight, int[] origins) {
+        int e = workingEdgeCount++;
+        edgeNode0[e] = u;
+        edgeNode1[e] = v;
+        edgeWeight[e] = weight;
+        edgeOrigins[e] = origins;
+        edgeAlive[e] = true;
+        attach(u, e);
+        if (v != u) {
+            attach(v, e);
+        }
+    }
+
+    private void attach(int node, int edge) {
+        if (degrees[node] == incidentEdges[node].length) {
+            incidentEdges[node] = Arrays.copyOf(incidentEdges[node], 2 * degrees[node]);
+        }
+        incidentEdges[node][degrees[node]++] = edge;
+    }
+
+    private void deleteEdge(int edge) {
+        edgeAlive[edge] = false;
+        detach(edgeNode0[edge], edge);
+        if (edgeNode1[edge] != edgeNode0[edge]) {
+            detach(edgeNode1[edge], edge);
+        }
+    }
+
+    private void detach(int node, int edge) {
+        int[] incident = incidentEdges[node];
+        for (int i = 0; i < degrees[node]; ++i) {
+            if (incident[i] == edge) {
+                incident[i] = incident[--degrees[node]];
+                return;
+            }
+        }
+    }
+
+    private int opposite(int edge, int node) {
+        return edgeNode0[edge] == node ? edgeNode1[edge] : edgeNode0[edge];
+    }
+
+    /**
+     * Usunięcie pętli oraz krawędzi równoległych - zostaje najlżejsza krawędź między każdą parą węzłów.
+     */
+    private boolean removeParallelEdges() {
+        int nodeCount = originalGraph.getNodeCount();
+        // lightest[v] - najlżejsza krawędź od bieżącego węzła do v (ważne, gdy mark[v] == bieżący węzeł):
+        int[] lightest = new int[nodeCount];
+        int[] mark = new int[nodeCount];
+        Arrays.fill(mark, -1);
+        boolean changed = false;
+
+        for (int u = 0; u < nodeCount; ++u) {
+            if (!nodeAlive[u]) {
+                continue;
+            }
+            for (int i = 0; i < degrees[u]; ++i) {
+                int e = incidentEdges[u][i];
+                int v = opposite(e, u);
+                if (v != u && (mark[v] != u || edgeWeight[e] < edgeWeight[lightest[v]])) {
+                    mark[v] = u;
+                    lightest[v] = e;
+                }
+            }
+            // Usunięcie krawędzi przenosi na jej pozycję ostatnią krawędź listy (sprawdzaną w kolejnym kroku):
+            for (int i = 0; i < degrees[u]; ) {
+                int e = incidentEdges[u][i];
+                int v = opposite(e, u);
+                if (v == u || lightest[v] != e) {
+                    deleteEdge(e);
+                    ++removedParallelEdgeCount;
+                    changed = true;
+                } else {
+                    ++i;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Reguły dla wierzchołków niskiego stopnia, stosowane z kolejką węzłów, których stopień się zmienił.
+     */
+    private boolean reduceLowDegreeNodes() {
+        int nodeCount = originalGraph.getNodeCount();
+        int[] stack = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int size = 0;
+        for (int v = nodeCount - 1; v >= 0; --v) {
+            if (nodeAlive[v] && degrees[v] <= 2) {
+                stack[size++] = v;
+                onStack[v] = true;
+            }
+        }
+
+        boolean changed = false;
+        while (size > 0 && terminalCount > 1) {
+            int v = stack[--size];
+            onStack[v] = false;
+            if (!nodeAlive[v]) {
+                continue;
+            }
+
+            int[] neighbours;
+            if (!terminal[v] && degrees[v] <= 1) {
+                neighbours = removeNode(v);
+            } else if (!terminal[v] && degrees[v] == 2) {
+                neighbours = contractNode(v);
+            } else if (terminal[v] && degrees[v] == 1) {
+                neighbours = fixTerminalEdge(v);
+            } else {
+                continue;
+            }
+            changed = true;
+
+            for (int u : neighbours) {
+                if (nodeAlive[u] && !onStack[u] && degrees[u] <= 2) {
+                    stack[size++] = u;
+                    onStack[u] = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Usunięcie wierzchołka nieterminalnego stopnia 0 lub 1 (nie może należeć do minimalnego drzewa).
+     */
+    private int[] removeNode(int v) {
+        int[] neighbours = new int[degrees[v]];
+        for (int i = 0; degrees[v] > 0; ++i) {
+            int e = incidentEdges[v][0];
+            neighbours[i] = opposite(e, v);
+            deleteEdge(e);
+        }
+        nodeAlive[v] = false;
+        ++removedNodeCount;
+        return neighbours;
+    }
+
+    /**
+     * Zastąpienie ścieżki a - v - b przez wierzchołek nieterminalny stopnia 2 krawędzią (a, b).
+     */
+    private int[] contractNode(int v) {
+        int e1 = incidentEdges[v][0], e2 = incidentEdges[v][1];
+        int a = opposite(e1, v), b = opposite(e2, v);
+        int[] origins1 = edgeOrigins[e1], origins2 = edgeOrigins[e2];
+        int weight = edgeWeight[e1] + edgeWeight[e2];
+
+        deleteEdge(e1);
+        deleteEdge(e2);
+        nodeAlive[v] = false;
+        if (a == b) {
+            // Obie krawędzie prowadzą do tego samego sąsiada - wierzchołek jest w istocie liściem:
+            ++removedNodeCount;
+            return new int[]{a};
+        }
+
+        int[] origins = Arrays.copyOf(origins1, origins1.length + origins2.length);
+        System.arraycopy(origins2, 0, origins, origins1.length, origins2.length);
+        addEdge(a, b, weight, origins);
+        ++contractedNodeCount;
+        return new int[]{a, b};
+    }
+
+    /**
+     * Terminal stopnia 1 - jego jedyna krawędź należy do każdego rozwiązania; sąsiad przejmuje rolę terminala.
+     */
+    private int[] fixTerminalEdge(int t) {
+        int e = incidentEdges[t][0];
+        int u = opposite(e, t);
+        for (int origin : edgeOrigins[e]) {
+            if (fixedEdgeCount == fixedEdges.length) {
+                fixedEdges = Arrays.copyOf(fixedEdges, 2 * fixedEdgeCount + 1);
+            }
+            fixedEdges[fixedEdgeCount++] = origin;
+        }
+        fixedWeight += edgeWeight[e];
+
+        deleteEdge(e);
+        nodeAlive[t] = false;
+        terminal[t] = false;
+        ++removedNodeCount;
+        if (terminal[u]) {
+            --terminalCount;
+        } else {
+            terminal[u] = true;
+        }
+        return new int[]{u};
+    }
+
+    /**
+     * Test krawędzi długich - krawędź (u, v) o wadze w jest usuwana, jeśli istnieje ścieżka z u do v krótsza niż w.
+     * Dla każdego węzła u wykonywany jest algorytm Dijkstry ograniczony do odległości mniejszych od największej
+     * wagi krawędzi incydentnej z u.
+     */
+    private boolean removeLongEdges() {
+        int nodeCount = originalGraph.getNodeCount();
+        int[] distance = new int[nodeCount];
+        int[] touched = new int[nodeCount];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        IntPriorityQueue queue = new DaryHeap(nodeCount);
+        boolean changed = false;
+
+        for (int u = 0; u < nodeCount; ++u) {
+            if (!nodeAlive[u] || degrees[u] < 2) {
+                continue;
+            }
+            int limit = 0;
+            for (int i = 0; i < degrees[u]; ++i) {
+                limit = Math.max(limit, edgeWeight[incidentEdges[u][i]]);
+            }
+
+            // Ograniczony algorytm Dijkstry z u (węzły o odległości >= limit nie są rozwijane):
+            int touchedCount = 0;
+            distance[u] = 0;
+            touched[touchedCount++] = u;
+            queue.clear();
+            queue.add(u, 0);
+            while (!queue.isEmpty()) {
+                int x = queue.extractMin();
+                int dx = distance[x];
+                for (int i = 0; i < degrees[x]; ++i) {
+                    int e = incidentEdges[x][i];
+                    int y = opposite(e, x);
+                    int alt = dx + edgeWeight[e];
+                    if (alt >= limit || alt >= distance[y]) {
+                        continue;
+                    }
+                    if (distance[y] == Integer.MAX_VALUE) {
+                        touched[touchedCount++] = y;
+                        distance[y] = alt;
+                        queue.add(y, alt);
+                    } else if (queue.contains(y)) {
+                        distance[y] = alt;
+                        queue.decreaseKey(y, alt);
+                    }
+                }
+            }
+
+            for (int i = 0; i < degrees[u]; ) {
+                int e = incidentEdges[u][i];
+                if (distance[opposite(e, u)] < edgeWeight[e]) {
+                    deleteEdge(e);
+                    ++removedLongEdgeCount;
+                    changed = true;
+                } else {
+                    ++i;
+                }
+            }
+
+            for (int i = 0; i < touchedCount; ++i) {
+                distance[touched[i]] = Integer.MAX_VALUE;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Test odległości specjalnej - krawędź (u, v) o wadze w jest usuwana, jeśli dla pewnego terminala z
+     * max(d(u, z), d(v, z)) < w. Ścieżka u - z - v dzieli się w terminalu z na odcinki krótsze niż w, więc każde
+     * drzewo zawierające krawędź można zastąpić lżejszym. Wszystkie krawędzie testowane są na odległościach
+     * wyznaczonych przed usunięciami.
+     */
+    private boolean removeSpecialDistanceEdges() {
+        CompactGraph graph = snapshot();
+        int[] nodes = new int[terminalCount];
+        for (int v = 0, i = 0; v < terminal.length; ++v) {
+            if (terminal[v]) {
+                nodes[i++] = v;
+            }
+        }
+
+        // bound[e] - najmniejsze dotychczasowe oszacowanie odległości specjalnej krawędzi grafu roboczego:
+        int[] bound = new int[workingEdgeCount];
+        Arrays.fill(bound, Integer.MAX_VALUE);
+        Dijkstra dijkstra = new Dijkstra();
+        dijkstra.setWorkspace(SearchWorkspace.create(graph, PriorityQueueType.AUTO));
+        for (int z : nodes) {
+            dijkstra.init(graph, z);
+            // Odległości nie mniejsze od największej wagi krawędzi nie pozwalają usunąć żadnej krawędzi:
+            dijkstra.setDistanceLimit(graph.getMaxWeight() - 1);
+            dijkstra.compute();
+            for (int e = 0; e < workingEdgeCount; ++e) {
+                if (edgeAlive[e]) {
+                    int du = dijkstra.getDistance(edgeNode0[e]);
+                    int dv = dijkstra.getDistance(edgeNode1[e]);
+                    bound[e] = Math.min(bound[e], Math.max(du, dv));
+                }
+            }
+        }
+
+        boolean changed = false;
+        for (int e = 0; e < workingEdgeCount; ++e) {
+            if (edgeAlive[e] && bound[e] < edgeWeight[e]) {
+                deleteEdge(e);
+                ++removedSpecialDistanceEdgeCount;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Graf roboczy w postaci zwartej (z oryginalną numeracją węzłów; numer krawędzi to numer krawędzi roboczej,
+     * krawędzie usunięte zastępowane są pętlami o zerowej wadze, które nie wpływają na odległości).
+     */
+    private CompactGraph snapshot() {
+        int[] node0 = Arrays.copyOf(edgeNode0, workingEdgeCount);
+        int[] node1 = Arrays.copyOf(edgeNode1, workingEdgeCount);
+        int[] weight = Arrays.copyOf(edgeWeight, workingEdgeCount);
+        for (int e = 0; e < workingEdgeCount; ++e) {
+            if (!edgeAlive[e]) {
+                node1[e] = node0[e];
+                weight[e] = 0;
+            }
+        }
+        return new CompactGraph(originalGraph.getNodeCount(), node0, node1, weight);
+    }
+
+    /**
+     * Przenumerowanie pozostałych węzłów i krawędzi grafu roboczego do zwartej postaci.
+     */
+    private void buildReducedGraph() {
+        int nodeCount = originalGraph.getNodeCount();
+        int[] localIndices = new int[nodeCount];
+        int reducedNodeCount = 0;
+        for (int v = 0; v < nodeCount; ++v) {
+            // Przy jednym terminalu pozostały graf nie jest potrzebny - zostaje jedynie terminal:
+            boolean kept = terminalCount > 1 ? nodeAlive[v] : nodeAlive[v] && terminal[v];
+            localIndices[v] = kept ? reducedNodeCount++ : -1;
+        }
+
+        int reducedEdgeCount = 0;
+        for (int e = 0; e < workingEdgeCount; ++e) {
+            if (edgeAlive[e] && localIndices[edgeNode0[e]] >= 0 && localIndices[edgeNode1[e]] >= 0) {
+                ++reducedEdgeCount;
+            }
+        }
+
+        int[] node0 = new int[reducedEdgeCount];
+        int[] node1 = new int[reducedEdgeCount];
+        int[] weight = new int[reducedEdgeCount];
+        this.reducedEdgeOrigins = new int[reducedEdgeCount][];
+        for (int e = 0, i = 0; e < workingEdgeCount; ++e) {
+            if (edgeAlive[e] && localIndices[edgeNode0[e]] >= 0 && localIndices[edgeNode1[e]] >= 0) {
+                node0[i] = localIndices[edgeNode0[e]];
+                node1[i] = localIndices[edgeNode1[e]];
+                weight[i] = edgeWeight[e];
+                reducedEdgeOrigins[i++] = edgeOrigins[e];
+            }
+        }
+        this.reducedGraph = new CompactGraph(reducedNodeCount, node0, node1, weight);
+
+        this.reducedTerminals = new int[terminalCount];
+        for (int v = 0, i = 0; v < nodeCount; ++v) {
+            if (terminal[v] && nodeAlive[v]) {
+                reducedTerminals[i++] = localIndices[v];
+            }
+        }
+    }
+
+}
@@ -1,70 +1,294 @@
 package pl.edu.pw.elka.gis.steinar.algorithms;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
-import org.graphstream.graph.Node;
 import pl.edu.pw.elka.gis.steinar.algorithms.exceptions.HakimiTooBigGraphException;
-import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementacja algorytmu dokładnego Hakimi.
+ *
+ * Podzbiory wierzchołków nieterminalnych przeglądane są w kolejności kodu Graya, więc każdy krok dodaje lub usuwa
+ * z bieżącego podzbioru dokładnie jeden wierzchołek. Minimalne drzewo rozpinające podgrafu indukowanego wyznaczane
+ * jest tablicową wersją algorytmu Prima na macierzy sąsiedztwa - wszystkie bufory alokowane są jednokrotnie,
+ * przed rozpoczęciem przeglądu.
+ *
+ * Przestrzeń podzbiorów dzielona jest na przedziały przetwarzane równolegle we wspólnej puli
+ * ({@link ParallelTasks}). Najlepsze dotychczasowe rozwiązanie jest współdzielone przez wątki (bez blokad) i służy
+ * do przerywania obliczeń dla podzbiorów, które nie mogą go poprawić. Przy równych wagach wygrywa podzbiór o mniejszym numerze w kolejności
+ * przeglądu, więc wynik nie zależy od liczby wątków.
  */
 @NoArgsConstructor
 public class Hakimi extends AbstractMinimumSteinerTreeAlgorithm {
 
-    private static final String PRIM_RESULT_ATTR = "prim_result";
-    private static final String PRIM_SOLUTION_ATTR = "prim_solution";
+    private static final int NO_EDGE = Integer.MAX_VALUE;
+    private static final long MIN_SUBSETS_PER_TASK = 1 << 12;
 
     @Override
-    protected void findMinimumSteinerTree() {
-        int minWeight = Integer.MAX_VALUE;
-        List<Edge> minTree = new ArrayList<>();
-        Set<Node> terminalNodes = Utils.getTerminalNodes(steinerGraph);
+    protected int[] findMinimumSteinerTree(CompactGraph graph, int[] terminals) {
+        int nonTerminalCount = graph.getNodeCount() - terminals.length;
+        if (nonTerminalCount >= 64) {
+            throw new HakimiTooBigGraphException();
+        }
 
-        List<Node> nonTerminals = Utils.getNonTerminalNodes(steinerGraph).stream().collect(Collectors.toList());
+        AdjacencyMatrix matrix = new AdjacencyMatrix(graph, terminals);
+        long subsetsCount = 1l << nonTerminalCount;
+        AtomicReference<Incumbent> best = new AtomicReference<>(Incumbent.NONE);
 
-        if (nonTerminals.size() >= 64) {
-            throw new HakimiTooBigGraphException();
+        // Przedziały podzbiorów pobierane są przez wątki wspólnej puli; każdy wątek ma własne bufory przeglądu:
+        long chunkSize = parallelism <= 1 ? subsetsCount
+                : Math.max(MIN_SUBSETS_PER_TASK, subsetsCount / (parallelism * 64l));
+        long chunkCount = (subsetsCount + chunkSize - 1) / chunkSize;
+        ParallelTasks.run(parallelism, chunkCount, () -> {
+            SubsetEnumeration enumeration = new SubsetEnumeration(matrix);
+            return chunk -> searchRange(enumeration, chunk * chunkSize,
+                    Math.min(subsetsCount, (chunk + 1) * chunkSize), best);
+        });
+
+        return best.get().getTree();
+    }
+
+    /**
+     * Przegląd podzbiorów o numerach z przedziału [from, to) w kolejności kodu Graya
+     * (i-ty podzbiór to i ^ (i >> 1)).
+     */
+    private static void searchRange(SubsetEnumeration enumeration, long from, long to,
+                                    AtomicReference<Incumbent> best) {
+        enumeration.setSubset(from ^ (from >>> 1));
+
+        for (long i = from; i < to; ++i) {
+            //Przejdź do kolejnego podzbioru (w kolejności kodu Graya różni się od poprzedniego jednym wierzchołkiem)
+            if (i > from) {
+                enumeration.toggle(Long.numberOfTrailingZeros(i));
+            }
+
+            //Drzewo musi być lżejsze od najlepszego (lub równie lekkie, jeśli najlepsze ma większy numer)
+            Incumbent current = best.get();
+            int bound = current.getIndex() < i || current.getWeight() == Integer.MAX_VALUE
+                    ? current.getWeight() : current.getWeight() + 1;
+
+            //Oblicz minimalne drzewo rozpinające podgraf indukowany (przerywając, gdy nie może być lepsze)
+            int MSTweight = enumeration.computeMinimumSpanningTree(bound);
+
+            //Jeśli drzewo zostało znalezione, to spróbuj je zapamiętać jako najlepsze
+            if (MSTweight != SubsetEnumeration.NOT_FOUND && MSTweight != 0) {
+                offer(best, new Incumbent(MSTweight, i, enumeration.getTreeEdges()));
+            }
         }
+    }
 
-        long subsetsCount = 1l << nonTerminals.size();
+    private static void offer(AtomicReference<Incumbent> best, Incumbent candidate) {
+        while (true) {
+            Incumbent current = best.get();
+            if (!candidate.isBetterThan(current) || best.compareAndSet(current, candidate)) {
+                return;
+            }
+        }
+    }
 
-        for (long i = 0; i < subsetsCount; ++i) {
-            //Wylicz wierzchołki znajdujace sie w podzbiorze
-            ArrayList<Node> nodeSubset = new ArrayList<>();
-            long mask = 1;
-            for (int k = 0; k < nonTerminals.size(); ++k) {
-                if ((mask & i) != 0) {
-                    nodeSubset.add(nonTerminals.get(k));
+    /**
+     * Najlepsze znalezione drzewo (niezmienne, współdzielone przez wątki).
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Incumbent {
+        static final Incumbent NONE = new Incumbent(Integer.MAX_VALUE, Long.MAX_VALUE, new int[0]);
+
+        private final int weight;
+        private final long index;
+        private final int[] tree;
+
+        boolean isBetterThan(Incumbent other) {
+            return weight < other.weight || (weight == other.weight && index < other.index);
+        }
+    }
+
+    /**
+     * Macierz sąsiedztwa grafu (tylko do odczytu, współdzielona przez wątki). Terminale otrzymują lokalne numery
+     * 0..|T|-1, a k-ty wierzchołek nieterminalny numer |T|+k.
+     */
+    static class AdjacencyMatrix {
+        private final int size;
+        private final int terminalCount;
+        // Macierz wag (NO_EDGE - brak krawędzi) i indeksów krawędzi, wiersz i dotyczy lokalnego węzła i:
+        private final int[] weights;
+        private final int[] edges;
+
+        AdjacencyMatrix(CompactGraph graph, int[] terminals) {
+            this.size = graph.getNodeCount();
+            this.terminalCount = terminals.length;
+
+            int[] localIndices = new int[size];
+            Arrays.fill(localIndices, -1);
+            for (int i = 0; i < terminals.length; ++i) {
+                localIndices[terminals[i]] = i;
+            }
+            for (int node = 0, next = terminals.length; node < size; ++node) {
+                if (localIndices[node] < 0) {
+                    localIndices[node] = next++;
                 }
-                mask <<= 1;
             }
 
-            //Oblicz minimalne drzewo rozppinajace oparte na nich
-            nodeSubset.addAll(terminalNodes);
-            Graph graph = Utils.getInducedSubgraph(steinerGraph.getGraph(), nodeSubset);
-            Prim MST = new Prim();
-            MST.init(graph, terminalNodes.iterator().next().getId(), SteinerGraph.WEIGHT_ATTR, PRIM_RESULT_ATTR, PRIM_SOLUTION_ATTR);
-            MST.compute();
-            int MSTweight = MST.getMinimumSpanningTreeWeight();
-
-            //Czy drzewo zostało znalezione
-            boolean hasFoundTree =  nodeSubset.size()-1 == MST.getMinimumSpanningTreeEdges().size();
-
-            //Jesli tak to sprawdz czy jest ono najmniejsze
-            if (hasFoundTree && MSTweight != 0 && minWeight > MSTweight) {
-                minWeight = MSTweight;
-                minTree = MST.getMinimumSpanningTreeEdges();
+            this.weights = new int[size * size];
+            this.edges = new int[size * size];
+            Arrays.fill(weights, NO_EDGE);
+            for (int e = 0; e < graph.getEdgeCount(); ++e) {
+                int u = localIndices[graph.getEdgeNode0(e)], v = localIndices[graph.getEdgeNode1(e)];
+                int w = graph.getEdgeWeight(e);
+                if (u != v && w < weights[u * size + v]) {
+                    weights[u * size + v] = weights[v * size + u] = w;
+                    edges[u * size + v] = edges[v * size + u] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stan przeglądu podzbiorów jednego wątku: bieżący podzbiór wierzchołków (terminale i wybrane wierzchołki
+     * nieterminalne) z buforami algorytmu Prima.
+     */
+    static class SubsetEnumeration {
+
+        static final int NOT_FOUND = -1;
+
+        private final int size;
+        private final int terminalCount;
+        private final int[] weights;
+        private final int[] edges;
+
+        // Bieżący podzbiór: active[0..activeCount) (na początku zawsze terminale), activePositions - pozycja
+        // węzła w tablicy active albo -1:
+        private final int[] active;
+        private final int[] activePositions;
+        private int activeCount;
+
+        // Bufory algorytmu Prima:
+        private final int[] keys;
+        private final int[] parentEdges;
+        private final int[] treeEdges;
+        private int treeEdgeCount;
+
+        SubsetEnumeration(AdjacencyMatrix matrix) {
+            this.size = matrix.size;
+            this.terminalCount = matrix.terminalCount;
+            this.weights = matrix.weights;
+            this.edges = matrix.edges;
+
+            this.active = new int[size];
+            this.activePositions = new int[size];
+            this.keys = new int[size];
+            this.parentEdges = new int[size];
+            this.treeEdges = new int[size];
+        }
+
+        /**
+         * Ustawienie podzbioru wierzchołków nieterminalnych zadanego maską bitową.
+         */
+        void setSubset(long subset) {
+            Arrays.fill(activePositions, -1);
+            for (int i = 0; i < terminalCount; ++i) {
+                active[i] = i;
+                activePositions[i] = i;
+            }
+            activeCount = terminalCount;
+            for (int k = 0; subset != 0; ++k, subset >>>= 1) {
+                if ((subset & 1) != 0) {
+                    toggle(k);
+                }
+            }
+        }
+
+        /**
+         * Dodanie do podzbioru lub usunięcie z niego k-tego wierzchołka nieterminalnego.
+         */
+        void toggle(int k) {
+            int node = terminalCount + k;
+            int position = activePositions[node];
+            if (position < 0) {
+                active[activeCount] = node;
+                activePositions[node] = activeCount++;
+            } else {
+                int last = active[--activeCount];
+                active[position] = last;
+                activePositions[last] = position;
+                activePositions[node] = -1;
+            }
+        }
+
+        /**
+         * Tablicowy algorytm Prima (O(s^2) dla s wierzchołków podzbioru) na podgrafie indukowanym bieżącym
+         * podzbiorem.
+         *
+         * @param bound wartość, po osiągnięciu której obliczenia są przerywane
+         * @return      waga drzewa albo NOT_FOUND, jeśli podgraf jest niespójny lub drzewo nie jest lżejsze niż bound
+         */
+        int computeMinimumSpanningTree(int bound) {
+            int count = activeCount;
+            int[] nodes = active;
+            treeEdgeCount = 0;
+
+            // Węzły nieprzyłączone do drzewa zajmują pozycje [added, count) tablicy nodes; tablica jest jedynie
+            // permutowana, więc nie wpływa to na zawartość podzbioru.
+            int root = nodes[0];
+            for (int i = 1; i < count; ++i) {
+                int v = nodes[i];
+                keys[v] = weights[root * size + v];
+                parentEdges[v] = edges[root * size + v];
+            }
+
+            int weight = 0;
+            for (int added = 1; added < count; ++added) {
+                int minPosition = -1;
+                int minKey = NO_EDGE;
+                for (int i = added; i < count; ++i) {
+                    if (keys[nodes[i]] < minKey) {
+                        minKey = keys[nodes[i]];
+                        minPosition = i;
+                    }
+                }
+                if (minPosition < 0) {
+                    restoreActivePositions();
+                    return NOT_FOUND;
+                }
+
+                weight += minKey;
+                if (weight >= bound) {
+                    restoreActivePositions();
+                    return NOT_FOUND;
+                }
+
+                int u = nodes[minPosition];
+                nodes[minPosition] = nodes[added];
+                nodes[added] = u;
+                treeEdges[treeEdgeCount++] = parentEdges[u];
+
+                int row = u * size;
+                for (int i = added + 1; i < count; ++i) {
+                    int v = nodes[i];
+                    if (weights[row + v] < keys[v]) {
+                        keys[v] = weights[row + v];
+                        parentEdges[v] = edges[row + v];
+                    }
+                }
+            }
+
+            restoreActivePositions();
+            return weight;
+        }
+
+        int[] getTreeEdges() {
+            return Arrays.copyOf(treeEdges, treeEdgeCount);
+        }
+
+        private void restoreActivePositions() {
+            for (int i = 0; i < activeCount; ++i) {
+                activePositions[active[i]] = i;
             }
         }
 
-        steinerGraph.setResultTreeEdges(new HashSet<>(minTree));
     }
 }
@@ -0,0 +1,291 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.InducedSubgraph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Dokładny algorytm Hakimi w wersji z podziałem i ograniczeniami (branch and bound).
+ *
+ * Przestrzeń podzbiorów wierzchołków nieterminalnych przeglądana jest w głąb - w każdym węźle drzewa przeszukiwania
+ * kolejny wierzchołek zostaje włączony do podzbioru albo z niego wykluczony. Pierwsze ograniczenie górne daje
+ * algorytm KMB. Dolne ograniczenie w węźle wyznaczane jest z minimalnego drzewa rozpinającego domknięcia
+ * metrycznego wierzchołków wymaganych (terminali i włączonych wierzchołków) w podgrafie indukowanym wierzchołkami
+ * niewykluczonymi ({@link VoronoiDistanceNetwork}) oraz z najlżejszych krawędzi incydentnych z wierzchołkami
+ * wymaganymi; ten sam graf odległości daje drzewo Steinera poprawiające ograniczenie górne. Gałęzie, w których
+ * wierzchołki wymagane są niespójne albo dolne ograniczenie nie jest mniejsze od najlepszego rozwiązania, są
+ * odcinane. Wierzchołki, które po wykluczeniach mają co najwyżej jednego sąsiada, są wykluczane bez rozgałęzienia.
+ *
+ * Przed przeszukiwaniem wyznaczane jest ograniczenie metodą wzrostu dualnego ({@link DualAscent}) - obowiązuje
+ * ono w całym drzewie przeszukiwania, a jego koszty zredukowane pozwalają od razu wykluczać wierzchołki, których
+ * użycie nie może dać rozwiązania lżejszego od najlepszego.
+ *
+ * W odróżnieniu od {@link Hakimi} algorytm nie ogranicza liczby wierzchołków nieterminalnych - przeszukiwanie
+ * korzysta z jawnego stosu, a graf odległości i jego bufory są wspólne dla wszystkich węzłów drzewa przeszukiwania.
+ */
+@NoArgsConstructor
+public class HakimiBranchAndBound extends AbstractMinimumSteinerTreeAlgorithm {
+
+    // Plany rozgałęzienia węzła drzewa przeszukiwania (kolejność gałęzi):
+    private static final byte EXCLUDE_ONLY = 0;
+    private static final byte INCLUDE_FIRST = 1;
+    private static final byte EXCLUDE_FIRST = 2;
+
+    /**
+     * Liczba odwiedzonych węzłów drzewa przeszukiwania w ostatnim przebiegu.
+     */
+    @Getter
+    private long exploredNodeCount;
+    /**
+     * Liczba odciętych węzłów drzewa przeszukiwania w ostatnim przebiegu.
+     */
+    @Getter
+    private long prunedNodeCount;
+    /**
+     * Dolne ograniczenie wagi drzewa Steinera wyznaczone w korzeniu drzewa przeszukiwania.
+     */
+    @Getter
+    private int rootLowerBound;
+
+    private CompactGraph graph;
+    private int[] terminals;
+    private int[] branchingOrder;
+    // Podgraf indukowany wierzchołkami niewykluczonymi:
+    private InducedSubgraph allowed;
+    private int[] required;
+    private int requiredCount;
+    private boolean[] bestTreeNodes;
+    private int[] bestTree;
+    private int bestWeight;
+    private int dualLowerBound;
+    private long[] nodeLowerBounds;
+    // Graf odległości wyznaczany ponownie w każdym węźle drzewa przeszukiwania (wspólne bufory):
+    private VoronoiDistanceNetwork network;
+
+    @Override
+    protected int[] findMinimumSteinerTree(CompactGraph graph, int[] terminals) {
+        this.graph = graph;
+        this.terminals = terminals;
+        this.exploredNodeCount = 0;
+        this.prunedNodeCount = 0;
+        this.rootLowerBound = 0;
+
+        KMB kmb = new KMB();
+        kmb.setQueueType(queueType);
+        updateBest(kmb.findMinimumSteinerTree(graph, terminals));
+
+        DualAscent dualAscent = new DualAscent(graph, terminals);
+        dualAscent.compute();
+        this.dualLowerBound = (int) dualAscent.getLowerBound();
+        this.nodeLowerBounds = new long[graph.getNodeCount()];
+        for (int node = 0; node < graph.getNodeCount(); ++node) {
+            nodeLowerBounds[node] = dualAscent.getNodeLowerBound(node);
+        }
+        if (dualLowerBound >= bestWeight) {
+            // Rozwiązanie KMB jest optymalne:
+            this.rootLowerBound = dualLowerBound;
+            return bestTree;
+        }
+
+        boolean[] terminalMask = new boolean[graph.getNodeCount()];
+        for (int terminal : terminals) {
+            terminalMask[terminal] = true;
+        }
+        // Rozgałęzianie najpierw na wierzchołkach o największym stopniu:
+        this.branchingOrder = IntStream.range(0, graph.getNodeCount())
+                .filter(node -> !terminalMask[node])
+                .boxed()
+                .sorted(Comparator.comparingInt(node -> -graph.getDegree(node)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        this.allowed = InducedSubgraph.ofAllNodes(graph);
+        this.required = Arrays.copyOf(terminals, graph.getNodeCount());
+        this.requiredCount = terminals.length;
+
+        this.network = new VoronoiDistanceNetwork(graph, queueType);
+
+        search();
+
+        return bestTree;
+    }
+
+    /**
+     * Przeszukiwanie w głąb z jawnym stosem: dla każdej głębokości pamiętany jest plan rozgałęzienia i liczba
+     * wykonanych gałęzi, więc głębokość drzewa przeszukiwania (liczba wierzchołków nieterminalnych) nie jest
+     * ograniczona rozmiarem stosu wątku.
+     */
+    private void search() {
+        byte[] plans = new byte[branchingOrder.length];
+        int[] takenBranches = new int[branchingOrder.length];
+        int depth = 0;
+        boolean branch = visit(depth);
+        while (true) {
+            if (branch) {
+                plans[depth] = planBranches(branchingOrder[depth]);
+                takenBranches[depth] = 0;
+            } else {
+                // Powrót do najbliższego węzła z niezbadaną gałęzią:
+                do {
+                    if (depth == 0) {
+                        return;
+                    }
+                    --depth;
+                    undoBranch(branchingOrder[depth], isInclusion(plans[depth], takenBranches[depth] - 1));
+                } while (takenBranches[depth] == branchCount(plans[depth]));
+            }
+            applyBranch(branchingOrder[depth], isInclusion(plans[depth], takenBranches[depth]++));
+            branch = visit(++depth);
+        }
+    }
+
+    /**
+     * Ocena węzła drzewa przeszukiwania na danej głębokości.
+     *
+     * @return  czy węzeł należy rozgałęzić (false - węzeł odcięty albo liść)
+     */
+    private boolean visit(int depth) {
+        ++exploredNodeCount;
+
+        network.compute(required, requiredCount, allowed.getNodeMask());
+        if (!network.isConnected()) {
+            ++prunedNodeCount;
+            return false;
+        }
+        int lowerBound = Math.max(dualLowerBound,
+                Math.max(closureLowerBound(network.getMinimumSpanningTreeWeight()), incidenceLowerBound()));
+        if (depth == 0) {
+            rootLowerBound = lowerBound;
+        }
+        if (lowerBound >= bestWeight) {
+            ++prunedNodeCount;
+            return false;
+        }
+        updateBest(network.getMinimumSpanningTreePaths());
+
+        if (depth == branchingOrder.length) {
+            evaluateLeaf();
+            return false;
+        }
+        return true;
+    }
+
+    private byte planBranches(int node) {
+        if (countAllowedNeighbours(node) <= 1 || nodeLowerBounds[node] >= bestWeight) {
+            // Wierzchołek byłby liściem drzewa albo każde zawierające go drzewo jest nie lżejsze od najlepszego -
+            // jego włączenie nie może poprawić rozwiązania:
+            return EXCLUDE_ONLY;
+        }
+        return bestTreeNodes[node] ? INCLUDE_FIRST : EXCLUDE_FIRST;
+    }
+
+    private static int branchCount(byte plan) {
+        return plan == EXCLUDE_ONLY ? 1 : 2;
+    }
+
+    private static boolean isInclusion(byte plan, int branch) {
+        return plan == INCLUDE_FIRST ? branch == 0 : plan == EXCLUDE_FIRST && branch == 1;
+    }
+
+    private void applyBranch(int node, boolean inclusion) {
+        if (inclusion) {
+            required[requiredCount++] = node;
+        } else {
+            allowed.remove(node);
+        }
+    }
+
+    private void undoBranch(int node, boolean inclusion) {
+        if (inclusion) {
+            --requiredCount;
+        } else {
+            allowed.add(node);
+        }
+    }
+
+    /**
+     * Dolne ograniczenie z minimalnego drzewa rozpinającego domknięcia metrycznego r wierzchołków wymaganych:
+     * drzewo to jest co najwyżej 2(1 - 1/r) razy cięższe od optymalnego drzewa Steinera.
+     */
+    private int closureLowerBound(int closureWeight) {
+        long r = requiredCount;
+        return r < 2 ? 0 : (int) ((closureWeight * r + 2 * (r - 1) - 1) / (2 * (r - 1)));
+    }
+
+    /**
+     * Dolne ograniczenie z krawędzi incydentnych: w drzewie ukorzenionym w dowolnym wierzchołku wymaganym każdy
+     * pozostały wierzchołek wymagany ma własną krawędź do rodzica, nie lżejszą od najlżejszej krawędzi
+     * incydentnej z tym wierzchołkiem (w podgrafie wierzchołków niewykluczonych).
+     */
+    private int incidenceLowerBound() {
+        long sum = 0;
+        int max = 0;
+        for (int i = 0; i < requiredCount; ++i) {
+            int lightest = lightestAllowedEdge(required[i]);
+            sum += lightest;
+            max = Math.max(max, lightest);
+        }
+        return (int) (sum - max);
+    }
+
+    private int lightestAllowedEdge(int node) {
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int lightest = Integer.MAX_VALUE;
+        for (int i = allowed.getFirstArc(node), end = allowed.getEndArc(node); i < end; ++i) {
+            if (allowed.isArcIncluded(i) && targets[i] != node) {
+                lightest = Math.min(lightest, weights[i]);
+            }
+        }
+        return lightest == Integer.MAX_VALUE ? 0 : lightest;
+    }
+
+    private int countAllowedNeighbours(int node) {
+        int[] targets = graph.getTargets();
+        int count = 0;
+        int last = -1;
+        for (int i = allowed.getFirstArc(node), end = allowed.getEndArc(node); i < end && count < 2; ++i) {
+            int v = targets[i];
+            if (allowed.isArcIncluded(i) && v != node && v != last) {
+                ++count;
+                last = v;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Wszystkie wierzchołki są rozstrzygnięte - drzewem dla podzbioru jest minimalne drzewo rozpinające podgrafu
+     * indukowanego wierzchołkami włączonymi.
+     */
+    private void evaluateLeaf() {
+        Prim prim = new Prim();
+        prim.setQueueType(queueType);
+        prim.init(allowed, terminals[0]);
+        prim.compute();
+
+        if (prim.getResultantTreeEdgeCount() == requiredCount - 1) {
+            updateBest(prim.getMinimumSpanningTreeEdges());
+        }
+    }
+
+    private void updateBest(int[] tree) {
+        int weight = graph.getTotalWeight(tree, tree.length);
+        if (bestTree != null && weight >= bestWeight) {
+            return;
+        }
+        bestTree = tree;
+        bestWeight = weight;
+        bestTreeNodes = new boolean[graph.getNodeCount()];
+        for (int edge : tree) {
+            bestTreeNodes[graph.getEdgeNode0(edge)] = true;
+            bestTreeNodes[graph.getEdgeNode1(edge)] = true;
+        }
+    }
+
+}
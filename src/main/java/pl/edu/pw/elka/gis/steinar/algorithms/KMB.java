@@ -1,16 +1,11 @@
 package pl.edu.pw.elka.gis.steinar.algorithms;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Graph;
-import org.graphstream.graph.Node;
-import org.graphstream.graph.implementations.SingleGraph;
-import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.DenseGraph;
+import pl.edu.pw.elka.gis.steinar.model.InducedSubgraph;
 
-import java.util.*;
+import java.util.Arrays;
 
 /**
  * Implementacja algorytmu aproksymacyjnego KMB (Kou-Markowsky-Berman).
@@ -18,91 +13,190 @@ import java.util.*;
 @NoArgsConstructor
 public class KMB extends AbstractMinimumSteinerTreeAlgorithm {
 
-    @Getter
-    @Setter
-    @AllArgsConstructor
-    class KMBRoad {
-        private List<Edge> edgeList;
-        private String name;
-        private int length;
-        private Node nodeStart, nodeEnd;
-
-        @Override
-        public boolean equals(Object o)
-        {
-            if (this == o) {
-                return true;
+    @Override
+    protected int[] findMinimumSteinerTree(CompactGraph graph, int[] terminals) {
+        TerminalDistances distances = findDistancesBetweenTerminals(graph, terminals);
+        long[] treePairs = findMinimumSpanningTree(distances);
+
+        // Ścieżki odtwarzane są jedynie dla par terminali połączonych w drzewie grafu odległości:
+        InducedSubgraph subgraph = new InducedSubgraph(graph);
+        for (long pair : treePairs) {
+            int i = (int) (pair >>> 32), j = (int) pair;
+            int[] predecessors = distances.predecessors[i];
+            subgraph.add(terminals[j]);
+            for (int node = terminals[j], edge = predecessors[node]; edge >= 0; edge = predecessors[node]) {
+                node = graph.getOpposite(edge, node);
+                subgraph.add(node);
             }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
+        }
+        return findSteinerTreeInSubgraph(subgraph, terminals);
+    }
+
+    /**
+     * Końcowe kroki algorytmu KMB: ścieżki odpowiadające krawędziom drzewa grafu odległości mogą się przecinać,
+     * więc wyznaczane jest minimalne drzewo rozpinające podgrafu indukowanego węzłami tych ścieżek, z którego
+     * usuwane są (wielokrotnie) liście niebędące terminalami.
+     */
+    private int[] findSteinerTreeInSubgraph(InducedSubgraph subgraph, int[] terminals) {
+        CompactGraph graph = subgraph.getGraph();
+        Prim prim = new Prim();
+        prim.init(subgraph, terminals[0]);
+        prim.setQueueType(queueType);
+        prim.compute();
+        int[] treeEdges = prim.getMinimumSpanningTreeEdges();
+
+        boolean[] terminalMask = new boolean[graph.getNodeCount()];
+        for (int terminal : terminals) {
+            terminalMask[terminal] = true;
+        }
+        int[] degrees = new int[graph.getNodeCount()];
+        for (int edge : treeEdges) {
+            ++degrees[graph.getEdgeNode0(edge)];
+            ++degrees[graph.getEdgeNode1(edge)];
+        }
+
+        // Drzewo Prima ma krawędź od rodzica dla każdego węzła poza korzeniem (terminalem), a krawędzie występują
+        // w kolejności przyłączania węzłów - przegląd od końca usuwa liście przed ich rodzicami:
+        boolean[] removed = new boolean[treeEdges.length];
+        int count = treeEdges.length;
+        for (int i = treeEdges.length - 1; i >= 0; --i) {
+            int edge = treeEdges[i];
+            int u = graph.getEdgeNode0(edge), v = graph.getEdgeNode1(edge);
+            if ((degrees[u] == 1 && !terminalMask[u]) || (degrees[v] == 1 && !terminalMask[v])) {
+                removed[i] = true;
+                --count;
+                --degrees[u];
+                --degrees[v];
             }
+        }
 
-            KMBRoad kmbRoad = (KMBRoad) o;
-            return name != null ? name.equals(kmbRoad.name) : kmbRoad.name == null;
+        int[] edges = new int[count];
+        for (int i = 0, j = 0; i < treeEdges.length; ++i) {
+            if (!removed[i]) {
+                edges[j++] = treeEdges[i];
+            }
         }
+        return edges;
+    }
 
-        @Override
-        public int hashCode()
-        {
-            return name != null ? name.hashCode() : 0;
+    /**
+     * Minimalne drzewo rozpinające grafu odległości między terminalami wyznaczane algorytmem Kruskala na tablicy
+     * typów prostych: pary terminali kodowane są jako liczby long (odległość w starszych, numer pary w młodszych 32
+     * bitach) i sortowane równolegle, a cykle wykrywa struktura zbiorów rozłącznych. Przegląd kończy się po
+     * |T| - 1 połączeniach.
+     *
+     * @return  pary (i, j) pozycji terminali połączonych w drzewie, zakodowane jako (i << 32) | j
+     */
+    private static long[] findMinimumSpanningTree(TerminalDistances distances) {
+        int terminalCount = distances.terminalCount;
+        long[] sortedPairs = new long[distances.distances.length];
+        int pairCount = 0;
+        for (int k = 0; k < distances.distances.length; ++k) {
+            if (distances.distances[k] != Integer.MAX_VALUE) {
+                sortedPairs[pairCount++] = ((long) distances.distances[k] << 32) | k;
+            }
+        }
+        Arrays.parallelSort(sortedPairs, 0, pairCount);
+
+        DisjointSets components = new DisjointSets(terminalCount);
+        long[] treePairs = new long[terminalCount - 1];
+        int count = 0;
+        for (int k = 0; k < pairCount && count < treePairs.length; ++k) {
+            int pair = (int) sortedPairs[k];
+            int i = distances.getRow(pair), j = i + 1 + pair - distances.getRowStart(i);
+            if (components.union(i, j)) {
+                treePairs[count++] = ((long) i << 32) | j;
+            }
         }
+        return Arrays.copyOf(treePairs, count);
     }
 
-    @Override
-    protected void findMinimumSteinerTree() {
-        Set<Node> terminalNodes = new HashSet<>();
-        steinerGraph.getTerminalNodeIds().forEach(id -> terminalNodes.add(steinerGraph.getGraph().getNode(id)));
-        Map<String, KMBRoad> kmbRoads = new HashMap<>();
+    /**
+     * Odległości między terminalami w trójkątnej macierzy (wiersz i zawiera odległości od terminala terminals[i]
+     * do terminali terminals[i + 1..]) wraz z drzewami najkrótszych ścieżek z kolejnych terminali zapisanymi jako
+     * tablice krawędzi do poprzedników (-1 dla źródła i węzłów nieosiągniętych).
+     */
+    private static class TerminalDistances {
+        private final int terminalCount;
+        private final int[] distances;
+        private final int[][] predecessors;
+
+        TerminalDistances(int terminalCount) {
+            this.terminalCount = terminalCount;
+            this.distances = new int[(int) ((long) terminalCount * (terminalCount - 1) / 2)];
+            this.predecessors = new int[terminalCount][];
+        }
 
-        for (Node n1 : terminalNodes) {
-            Dijkstra dijkstra = new Dijkstra();
-            dijkstra.init(steinerGraph.getGraph(), n1.getId(), SteinerGraph.WEIGHT_ATTR, DIJKSTRA_RESULT_ATTR,
-                    DIJKSTRA_SOLUTION_ATTR);
-            dijkstra.compute();
-
-            for (Node n2 : terminalNodes) {
-                if (!n1.getId().equals(n2.getId())) {
-                    String name;
-                    if (Integer.valueOf(n1.getId()) > Integer.valueOf(n2.getId())) {
-                        name = n2.getId() + ":" + n1.getId();
-                    } else {
-                        name = n1.getId() + ":" + n2.getId();
-                    }
-
-                    List<Edge> edges = dijkstra.getShortestPathEdges(n2);
-                    int length = edges.stream().mapToInt(e ->
-                            e.getAttribute(SteinerGraph.WEIGHT_ATTR, Integer.class)).sum();
-
-                    KMBRoad kmbRoad = new KMBRoad(edges, name, length, n1, n2);
-                    kmbRoads.put(name, kmbRoad);
+        int getRowStart(int i) {
+            return (int) ((long) i * (2 * terminalCount - i - 1) / 2);
+        }
+
+        /**
+         * Numer wiersza zawierającego parę o zadanym indeksie (wyszukiwanie binarne po początkach wierszy).
+         */
+        int getRow(int pair) {
+            int low = 0, high = terminalCount - 2;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (getRowStart(middle) <= pair) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
                 }
             }
-            dijkstra.clear();
+            return low;
         }
 
-        Graph graphD = new SingleGraph("KMB_GRAPH");
-        graphD.setAutoCreate(true);
-        kmbRoads.values().forEach(kmbRoad -> {
-            String startId = kmbRoad.getNodeStart().getId(), endId = kmbRoad.getNodeEnd().getId();
-            if (graphD.getNode(startId) == null) {
-                graphD.addNode(kmbRoad.getNodeStart().getId());
+        /**
+         * Zapisanie wyniku przebiegu z terminala terminals[i] - każdy wiersz wypełniany jest przez jeden przebieg,
+         * więc przebiegi mogą zapisywać wyniki równolegle.
+         */
+        void store(int i, ShortestPathTree paths, int[] terminals, int nodeCount) {
+            int rowStart = getRowStart(i);
+            for (int j = i + 1; j < terminalCount; ++j) {
+                distances[rowStart + j - i - 1] = paths.getDistance(terminals[j]);
             }
-            if (graphD.getNode(endId) == null) {
-                graphD.addNode(kmbRoad.getNodeEnd().getId());
+            int[] row = new int[nodeCount];
+            for (int node = 0; node < nodeCount; ++node) {
+                row[node] = paths.getParentEdge(node);
             }
-            Edge edge = graphD.addEdge(kmbRoad.getName(), kmbRoad.getNodeStart().getId(), kmbRoad.getNodeEnd().getId());
-            edge.setAttribute(SteinerGraph.WEIGHT_ATTR, kmbRoad.getLength());
-        });
-
-        Prim prim = new Prim();
-        Node startNode = kmbRoads.values().iterator().next().getNodeStart();
-        prim.init(graphD, startNode.getId(), SteinerGraph.WEIGHT_ATTR, PRIM_RESULT_ATTR, PRIM_SOLUTION_ATTR);
-        prim.compute();
-        List<Edge> primEdges = prim.getMinimumSpanningTreeEdges();
+            predecessors[i] = row;
+        }
+    }
 
-        Set<Edge> edges = new HashSet<>();
-        primEdges.forEach(edge -> edges.addAll(kmbRoads.get(edge.getId()).getEdgeList()));
-        this.steinerGraph.setResultTreeEdges(edges);
+    /**
+     * Wyznacza odległości między wszystkimi parami terminali, uruchamiając algorytm Dijkstry z kolejnych terminali
+     * (dla grafów gęstych - jego tablicową wersję). Każda para obliczana jest raz: przebieg z terminals[i] kończy się
+     * po osiągnięciu terminali terminals[i + 1..], a z ostatniego terminala nie jest uruchamiany. Przebiegi
+     * wykonywane są równolegle we wspólnej puli ({@link ParallelTasks}); każdy wątek korzysta z własnych buforów,
+     * a graf jest jedynie odczytywany.
+     *
+     * @param graph     graf
+     * @param terminals indeksy terminali
+     * @return          macierz odległości z drzewami najkrótszych ścieżek
+     */
+    private TerminalDistances findDistancesBetweenTerminals(CompactGraph graph, int[] terminals) {
+        DenseGraph denseGraph = DenseGraph.isDense(graph) ? new DenseGraph(graph) : null;
+        TerminalDistances distances = new TerminalDistances(terminals.length);
+        int nodeCount = graph.getNodeCount();
+        ParallelTasks.run(parallelism, terminals.length - 1, () -> {
+            if (denseGraph != null) {
+                DenseDijkstra dijkstra = new DenseDijkstra(denseGraph);
+                return i -> {
+                    dijkstra.compute(terminals[(int) i]);
+                    distances.store((int) i, dijkstra, terminals, nodeCount);
+                };
+            }
+            Dijkstra dijkstra = new Dijkstra();
+            dijkstra.setWorkspace(SearchWorkspace.create(graph, queueType));
+            return i -> {
+                dijkstra.init(graph, terminals[(int) i]);
+                dijkstra.setTargets(Arrays.copyOfRange(terminals, (int) i + 1, terminals.length));
+                dijkstra.compute();
+                distances.store((int) i, dijkstra, terminals, nodeCount);
+            };
+        });
+        return distances;
     }
 
 }
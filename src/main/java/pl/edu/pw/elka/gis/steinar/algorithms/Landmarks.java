@@ -0,0 +1,96 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Punkty orientacyjne (landmarks) grafu wraz z odległościami od nich do wszystkich węzłów.
+ *
+ * Z nierówności trójkąta |d(L, t) - d(L, v)| jest dolnym ograniczeniem odległości d(v, t), co wykorzystuje
+ * algorytm {@link AltSearch}. Punkty wybierane są zachłannie - każdy kolejny jest węzłem najdalszym od już
+ * wybranych. Wyznaczenie wymaga jednego przebiegu algorytmu Dijkstry na punkt, więc obiekt należy tworzyć raz
+ * dla grafu i wykorzystywać w wielu zapytaniach (jest niezmienny i może być współdzielony przez wątki).
+ */
+public class Landmarks {
+
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    @Getter
+    private final CompactGraph graph;
+    @Getter
+    private final int[] landmarks;
+    // distances[i][v] - odległość od i-tego punktu do węzła v (Integer.MAX_VALUE - węzeł nieosiągalny):
+    private final int[][] distances;
+
+    public Landmarks(CompactGraph graph, int landmarkCount, PriorityQueueType queueType) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        int[] selected = new int[Math.min(landmarkCount, nodeCount)];
+        int[][] selectedDistances = new int[selected.length][];
+        int count = 0;
+
+        Dijkstra dijkstra = new Dijkstra();
+        dijkstra.setWorkspace(SearchWorkspace.create(graph, queueType));
+
+        // Odległość węzła od najbliższego z wybranych punktów:
+        int[] nearest = new int[nodeCount];
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+        int next = nodeCount > 0 ? farthestFrom(dijkstra, 0) : -1;
+        while (next >= 0 && count < selected.length) {
+            int[] distance = distancesFrom(dijkstra, next);
+            selected[count] = next;
+            selectedDistances[count++] = distance;
+
+            // Kolejnym punktem jest osiągalny węzeł najdalszy od wybranych (o ile nie pokrywa się z żadnym z nich):
+            next = -1;
+            for (int v = 0; v < nodeCount; ++v) {
+                nearest[v] = Math.min(nearest[v], distance[v]);
+                if (nearest[v] != Integer.MAX_VALUE && nearest[v] > 0 && (next < 0 || nearest[v] > nearest[next])) {
+                    next = v;
+                }
+            }
+        }
+
+        this.landmarks = Arrays.copyOf(selected, count);
+        this.distances = Arrays.copyOf(selectedDistances, count);
+    }
+
+    /**
+     * Dolne ograniczenie odległości między węzłami.
+     */
+    public int lowerBound(int v, int target) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; ++i) {
+            int dv = distances[i][v], dt = distances[i][target];
+            if (dv != Integer.MAX_VALUE && dt != Integer.MAX_VALUE) {
+                bound = Math.max(bound, Math.abs(dt - dv));
+            }
+        }
+        return bound;
+    }
+
+    private int[] distancesFrom(Dijkstra dijkstra, int source) {
+        dijkstra.init(graph, source);
+        dijkstra.compute();
+        int[] result = new int[graph.getNodeCount()];
+        for (int v = 0; v < result.length; ++v) {
+            result[v] = dijkstra.getDistance(v);
+        }
+        return result;
+    }
+
+    private int farthestFrom(Dijkstra dijkstra, int source) {
+        int[] result = distancesFrom(dijkstra, source);
+        int farthest = source;
+        for (int v = 0; v < result.length; ++v) {
+            if (result[v] != Integer.MAX_VALUE && result[v] > result[farthest]) {
+                farthest = v;
+            }
+        }
+        return farthest;
+    }
+
+}
@@ -0,0 +1,23 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.NoArgsConstructor;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+/**
+ * Implementacja algorytmu aproksymacyjnego Mehlhorna - wariantu KMB z tym samym współczynnikiem aproksymacji 2.
+ *
+ * Zamiast |T| przebiegów algorytmu Dijkstry i pełnego grafu odległości między terminalami wykonywany jest jeden
+ * wieloźródłowy przebieg z wszystkich terminali, dzielący graf na obszary Voronoi terminali. Krawędzie łączące
+ * różne obszary wyznaczają rzadki graf odległości ({@link VoronoiDistanceNetwork}), którego minimalne drzewo
+ * rozpinające odwzorowywane jest z powrotem na ścieżki w grafie. Złożoność: O(m + n log n).
+ */
+@NoArgsConstructor
+public class Mehlhorn extends AbstractMinimumSteinerTreeAlgorithm {
+
+    @Override
+    protected int[] findMinimumSteinerTree(CompactGraph graph, int[] terminals) {
+        VoronoiDistanceNetwork network = new VoronoiDistanceNetwork(graph, terminals, null, queueType);
+        return network.getMinimumSpanningTreePaths();
+    }
+
+}
@@ -0,0 +1,85 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Równoległe wykonanie ponumerowanych zadań we wspólnej puli {@link ForkJoinPool#commonPool()} - bez tworzenia
+ * wątków przy każdym wywołaniu. Jedno wywołanie zajmuje co najwyżej parallelism wątków, z których jednym jest wątek
+ * wywołujący, więc obliczenia postępują także przy puli zajętej przez inne wywołania. Każdy wątek tworzy własny
+ * stan (np. bufory algorytmu) i pobiera kolejne numery zadań ze wspólnego licznika.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Wykonuje zadania o numerach 0..taskCount - 1.
+     *
+     * @param parallelism   maksymalna liczba wątków (1 - wykonanie sekwencyjne w wątku wywołującym)
+     * @param taskCount     liczba zadań
+     * @param workerFactory tworzy wykonawcę zadań dla pojedynczego wątku
+     */
+    static void run(int parallelism, long taskCount, Supplier<LongConsumer> workerFactory) {
+        int workerCount = (int) Math.min(Math.max(parallelism, 1), taskCount);
+        if (workerCount <= 0) {
+            return;
+        }
+
+        AtomicLong nextTask = new AtomicLong();
+        Runnable work = () -> {
+            LongConsumer worker = workerFactory.get();
+            for (long task = nextTask.getAndIncrement(); task < taskCount; task = nextTask.getAndIncrement()) {
+                worker.accept(task);
+            }
+        };
+
+        List<Helper> helpers = new ArrayList<>(workerCount - 1);
+        for (int i = 1; i < workerCount; ++i) {
+            Helper helper = new Helper(work);
+            ForkJoinPool.commonPool().execute(helper);
+            helpers.add(helper);
+        }
+        try {
+            work.run();
+        } finally {
+            // Pomocnik, który jeszcze nie wystartował, zostaje zablokowany i nie jest oczekiwany - zadania wykonał
+            // już wątek wywołujący:
+            for (Helper helper : helpers) {
+                if (!helper.claim()) {
+                    helper.join();
+                }
+            }
+        }
+    }
+
+    private static final class Helper extends RecursiveAction {
+
+        private final Runnable work;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Helper(Runnable work) {
+            this.work = work;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        protected void compute() {
+            if (claim()) {
+                work.run();
+            }
+        }
+
+    }
+
+}
@@ -1,9 +1,6 @@
 package pl.edu.pw.elka.gis.steinar.algorithms;
 
 import lombok.NoArgsConstructor;
-import org.graphstream.graph.Edge;
-
-import java.util.List;
 
 /**
  * Implementacja algorytmu Prima.
@@ -12,20 +9,16 @@ import java.util.List;
 public class Prim extends AbstractSpanningTreeAlgorithm {
 
     public int getMinimumSpanningTreeWeight() {
-        int weight = 0;
-        for (Edge edge : this.resultantTreeEdges) {
-            weight += edge.<Integer>getAttribute(getEdgeWeightAttributeName());
-        }
-        return weight;
+        return getGraph().getTotalWeight(this.resultantTreeEdges, this.resultantTreeEdgeCount);
     }
 
-    public List<Edge> getMinimumSpanningTreeEdges() {
-        return this.resultantTreeEdges;
+    public int[] getMinimumSpanningTreeEdges() {
+        return getResultantTreeEdges();
     }
 
     @Override
-    protected int relaxFunction(Edge uv, NodeData uData) {
-        return getWeight(uv);
+    protected int relaxFunction(int uvWeight, int uDistance) {
+        return uvWeight;
     }
 
 }
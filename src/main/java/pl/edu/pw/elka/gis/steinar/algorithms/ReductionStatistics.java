@@ -0,0 +1,23 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Niezmienne statystyki redukcji instancji ({@link GraphReduction}) - rozmiary instancji przed i po redukcji
+ * oraz liczba ustalonych krawędzi i przebiegów redukcji.
+ */
+@Getter
+@AllArgsConstructor
+public final class ReductionStatistics {
+
+    private final int originalNodeCount;
+    private final int originalEdgeCount;
+    private final int originalTerminalCount;
+    private final int reducedNodeCount;
+    private final int reducedEdgeCount;
+    private final int reducedTerminalCount;
+    private final int fixedEdgeCount;
+    private final int roundCount;
+
+}
@@ -0,0 +1,108 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.IntPriorityQueue;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Stan pojedynczego przebiegu algorytmu Dijkstry / Prima (odległość, krawędź od rodzica, znacznik
+ * przetworzenia węzła i kolejka priorytetowa) przechowywany w gęstych tablicach indeksowanych numerem węzła.
+ *
+ * Obszar roboczy można wykorzystywać w kolejnych przebiegach algorytmów - {@link #reset()} przywraca stan
+ * początkowy jedynie dla węzłów odwiedzonych w poprzednim przebiegu (w czasie O(liczba odwiedzonych węzłów)).
+ * Obiekt nie jest bezpieczny wątkowo.
+ */
+public class SearchWorkspace {
+
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    @Getter
+    private final int capacity;
+    @Getter
+    private final IntPriorityQueue queue;
+
+    private final int[] distance;
+    private final int[] parentEdge;
+    private final boolean[] settled;
+    private final int[] touched;
+    private int touchedCount;
+
+    public SearchWorkspace(int capacity, IntPriorityQueue queue) {
+        this.capacity = capacity;
+        this.queue = queue;
+        this.distance = new int[capacity];
+        this.parentEdge = new int[capacity];
+        this.settled = new boolean[capacity];
+        this.touched = new int[capacity];
+        Arrays.fill(distance, UNREACHED);
+        Arrays.fill(parentEdge, -1);
+    }
+
+    /**
+     * Utworzenie obszaru roboczego dla danego grafu.
+     *
+     * @param graph     graf, na którym będą uruchamiane algorytmy
+     * @param queueType rodzaj kolejki priorytetowej
+     * @return          nowy obszar roboczy
+     */
+    public static SearchWorkspace create(CompactGraph graph, PriorityQueueType queueType) {
+        int nodeCount = graph.getNodeCount();
+        return new SearchWorkspace(nodeCount, queueType.create(nodeCount, graph.getMaxWeight()));
+    }
+
+    /**
+     * Przywrócenie stanu początkowego węzłów odwiedzonych od ostatniego resetu.
+     */
+    public void reset() {
+        for (int i = 0; i < touchedCount; ++i) {
+            int node = touched[i];
+            distance[node] = UNREACHED;
+            parentEdge[node] = -1;
+            settled[node] = false;
+        }
+        touchedCount = 0;
+        queue.clear();
+    }
+
+    /**
+     * Ustawienie odległości i krawędzi od rodzica dla osiągniętego węzła.
+     */
+    public void reach(int node, int nodeDistance, int edgeFromParent) {
+        if (distance[node] == UNREACHED) {
+            touched[touchedCount++] = node;
+        }
+        distance[node] = nodeDistance;
+        parentEdge[node] = edgeFromParent;
+    }
+
+    public void settle(int node) {
+        settled[node] = true;
+    }
+
+    public boolean isReached(int node) {
+        return distance[node] != UNREACHED;
+    }
+
+    public boolean isSettled(int node) {
+        return settled[node];
+    }
+
+    public int getDistance(int node) {
+        return distance[node];
+    }
+
+    public int getParentEdge(int node) {
+        return parentEdge[node];
+    }
+
+    /**
+     * Liczba węzłów odwiedzonych od ostatniego resetu.
+     */
+    public int getTouchedCount() {
+        return touchedCount;
+    }
+
+}
@@ -0,0 +1,19 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+/**
+ * Sposób wyszukiwania najkrótszej ścieżki w przypadku dwóch terminali.
+ */
+public enum ShortestPathMode {
+    /**
+     * Algorytm Dijkstry z terminala źródłowego, zatrzymywany po osiągnięciu drugiego terminala.
+     */
+    DIJKSTRA,
+    /**
+     * Dwukierunkowy algorytm Dijkstry ({@link BidirectionalDijkstra}).
+     */
+    BIDIRECTIONAL,
+    /**
+     * Algorytm A* z dolnymi ograniczeniami odległości wyznaczanymi z punktów orientacyjnych ({@link AltSearch}).
+     */
+    ALT
+}
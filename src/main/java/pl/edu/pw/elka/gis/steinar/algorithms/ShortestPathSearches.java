@@ -0,0 +1,62 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Zapytania o najkrótszą ścieżkę wykorzystujące dane zapamiętane w grafie ({@link CompactGraph#getCached}):
+ * punkty orientacyjne wyznaczane są raz dla grafu, a obiekty wyszukiwania (wraz z obszarami roboczymi) pobierane
+ * są z puli grafu i do niej zwracane. Obiekt wyszukiwania jest używany w danej chwili przez jeden wątek, więc
+ * zapytania mogą być zadawane równolegle.
+ */
+final class ShortestPathSearches {
+
+    private ShortestPathSearches() {
+    }
+
+    static int[] findBidirectional(CompactGraph graph, PriorityQueueType queueType, int source, int target) {
+        Queue<BidirectionalDijkstra> pool = getPool(graph, BidirectionalDijkstra.class, queueType);
+        BidirectionalDijkstra search = pool.poll();
+        if (search == null) {
+            search = new BidirectionalDijkstra(graph, queueType);
+        }
+        try {
+            return search.findShortestPath(source, target);
+        } finally {
+            pool.offer(search);
+        }
+    }
+
+    static int[] findAlt(CompactGraph graph, PriorityQueueType queueType, int source, int target) {
+        Queue<AltSearch> pool = getPool(graph, AltSearch.class, queueType);
+        AltSearch search = pool.poll();
+        if (search == null) {
+            search = new AltSearch(getLandmarks(graph, queueType), queueType);
+        }
+        try {
+            return search.findShortestPath(source, target);
+        } finally {
+            pool.offer(search);
+        }
+    }
+
+    /**
+     * Punkty orientacyjne grafu - wyznaczane przy pierwszym zapytaniu ALT (rodzaj kolejki wpływa jedynie na czas
+     * ich wyznaczania).
+     */
+    static Landmarks getLandmarks(CompactGraph graph, PriorityQueueType queueType) {
+        return graph.getCached(Landmarks.class,
+                g -> new Landmarks(g, Landmarks.DEFAULT_LANDMARK_COUNT, queueType));
+    }
+
+    private static <T> Queue<T> getPool(CompactGraph graph, Class<T> searchClass, PriorityQueueType queueType) {
+        Function<CompactGraph, Queue<T>> factory = g -> new ConcurrentLinkedQueue<>();
+        return graph.getCached(Arrays.asList(searchClass, queueType), factory);
+    }
+
+}
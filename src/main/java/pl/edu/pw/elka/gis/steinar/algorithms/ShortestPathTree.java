@@ -0,0 +1,23 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+/**
+ * Wynik algorytmu najkrótszych ścieżek z jednego źródła.
+ */
+public interface ShortestPathTree {
+
+    /**
+     * Odległość od źródła do zadanego węzła (Integer.MAX_VALUE dla węzłów nieosiągniętych).
+     */
+    int getDistance(int node);
+
+    /**
+     * Krawędzie najkrótszej ścieżki od źródła do zadanego węzła (w kolejności od węzła docelowego).
+     */
+    int[] getShortestPathEdges(int target);
+
+    /**
+     * Krawędź łącząca węzeł z poprzednikiem na najkrótszej ścieżce (-1 dla źródła i węzłów nieosiągniętych).
+     */
+    int getParentEdge(int node);
+
+}
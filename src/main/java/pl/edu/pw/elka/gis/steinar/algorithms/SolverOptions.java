@@ -0,0 +1,45 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.SteinerAlgorithmEnum;
+
+/**
+ * Niezmienne parametry wyznaczania drzewa Steinera przez {@link SteinerSolver}.
+ */
+@Getter
+@AllArgsConstructor
+public final class SolverOptions {
+
+    private final SteinerAlgorithmEnum algorithm;
+    private final boolean reductionEnabled;
+    private final PriorityQueueType queueType;
+    private final ShortestPathMode shortestPathMode;
+    /**
+     * Maksymalna liczba wątków wspólnej puli ForkJoin zajmowanych przez jedno wywołanie (1 - obliczenia
+     * w wątku wywołującym, np. gdy solver wywoływany jest równolegle z wielu wątków).
+     */
+    private final int parallelism;
+
+    public SolverOptions(SteinerAlgorithmEnum algorithm, boolean reductionEnabled, PriorityQueueType queueType,
+                         ShortestPathMode shortestPathMode) {
+        this(algorithm, reductionEnabled, queueType, shortestPathMode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parametry domyślne dla algorytmu - algorytmy dokładne (wykładnicze) uruchamiane są na zredukowanych
+     * instancjach.
+     */
+    public static SolverOptions defaults(SteinerAlgorithmEnum algorithm) {
+        boolean exact = algorithm == SteinerAlgorithmEnum.HAKIMI
+                || algorithm == SteinerAlgorithmEnum.HAKIMI_BRANCH_AND_BOUND
+                || algorithm == SteinerAlgorithmEnum.DREYFUS_WAGNER;
+        return new SolverOptions(algorithm, exact, PriorityQueueType.AUTO, ShortestPathMode.BIDIRECTIONAL);
+    }
+
+    public SolverOptions withParallelism(int parallelism) {
+        return new SolverOptions(algorithm, reductionEnabled, queueType, shortestPathMode, parallelism);
+    }
+
+}
@@ -0,0 +1,53 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import lombok.Getter;
+
+/**
+ * Niezmienny wynik wyznaczenia drzewa Steinera: krawędzie drzewa, jego waga oraz czasy etapów obliczeń
+ * (w nanosekundach).
+ */
+public final class SteinerSolution {
+
+    private final int[] edges;
+    @Getter
+    private final int weight;
+    /**
+     * Statystyki redukcji instancji wykonanej przed uruchomieniem algorytmu (null, jeśli redukcja była wyłączona).
+     */
+    @Getter
+    private final ReductionStatistics reductionStatistics;
+    @Getter
+    private final long reductionTime;
+    @Getter
+    private final long searchTime;
+    @Getter
+    private final long expansionTime;
+
+    public SteinerSolution(int[] edges, int weight, ReductionStatistics reductionStatistics, long reductionTime,
+                           long searchTime, long expansionTime) {
+        this.edges = edges.clone();
+        this.weight = weight;
+        this.reductionStatistics = reductionStatistics;
+        this.reductionTime = reductionTime;
+        this.searchTime = searchTime;
+        this.expansionTime = expansionTime;
+    }
+
+    /**
+     * Zwraca indeksy krawędzi drzewa (kopię - wynik pozostaje niezmienny).
+     *
+     * @return  tablica indeksów krawędzi
+     */
+    public int[] getEdges() {
+        return edges.clone();
+    }
+
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    public long getTotalTime() {
+        return reductionTime + searchTime + expansionTime;
+    }
+
+}
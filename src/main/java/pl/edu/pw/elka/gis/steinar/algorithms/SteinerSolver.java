@@ -0,0 +1,32 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+
+/**
+ * Bezstanowy interfejs wyznaczania drzew Steinera.
+ *
+ * Kontrakt wielowątkowości: implementacje są wielobieżne - jeden obiekt może obsługiwać dowolnie wiele
+ * równoczesnych wywołań {@link #solve}, także dla tego samego grafu. Wywołanie nie modyfikuje grafu (ani jego
+ * atrybutów, ani rozwiązania zapisanego w {@link SteinerGraph}) ani tablicy terminali, a wynik jest niezmienny.
+ * Graf nie może być natomiast modyfikowany (dodawanie i usuwanie węzłów, krawędzi, terminali) w trakcie wywołań.
+ */
+public interface SteinerSolver {
+
+    /**
+     * Wyznaczenie drzewa Steinera.
+     *
+     * @param graph     graf
+     * @param terminals indeksy węzłów terminalnych (zgodne z indeksami zwartej reprezentacji grafu)
+     * @param options   parametry obliczeń
+     * @return          rozwiązanie (krawędzie jako indeksy krawędzi grafu)
+     */
+    SteinerSolution solve(SteinerGraph graph, int[] terminals, SolverOptions options);
+
+    /**
+     * Wyznaczenie drzewa Steinera dla terminali oznaczonych w grafie.
+     */
+    default SteinerSolution solve(SteinerGraph graph, SolverOptions options) {
+        return solve(graph, graph.getTerminalIndices(), options);
+    }
+
+}
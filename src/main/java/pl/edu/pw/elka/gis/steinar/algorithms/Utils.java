@@ -4,6 +4,7 @@ import org.graphstream.graph.Edge;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.SingleGraph;
+import pl.edu.pw.elka.gis.steinar.model.InducedSubgraph;
 import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
 
 import java.util.*;
@@ -65,26 +66,6 @@ public class Utils {
         return newGraph;
     }
 
-    /**
-     * Wygenerowanie wszystkich możliwych id-ków par danych węzłów (id-ków potencjalnych krawędzi między nimi).
-     *
-     * @param nodes kolekcja węzłów grafu
-     * @return      lista id-ków wszystkich par danych węzłów
-     */
-    public static List<String> getAllNodeIdPairs(Collection<Node> nodes) {
-        List<String> pairNodeIds = new LinkedList<>();
-        for (Node node1 : nodes) {
-            String idNode1 = node1.getId();
-            for (Node node2 : nodes) {
-                String idNode2 = node2.getId();
-                if (!idNode1.equals(idNode2)) {
-                    pairNodeIds.add(idNode1 + ":" + idNode2);
-                }
-            }
-        }
-        return pairNodeIds;
-    }
-
     /**
      * Zwraca zbiór wszystkich nieterminalnych węzłów danego grafu steinera.
      *
@@ -118,29 +99,44 @@ public class Utils {
     }
 
     /**
-     * Generowanie podgrafu indukowanego na zadanym zbiorze węzłów grafu.
+     * Generowanie (kopii) podgrafu indukowanego na zadanym zbiorze węzłów grafu. Krawędzie wyszukiwane są
+     * na listach sąsiedztwa węzłów podzbioru - O(suma stopni węzłów). Algorytmy działające na podzbiorach
+     * wierzchołków powinny korzystać z widoku {@link InducedSubgraph}, który nie kopiuje grafu.
      *
      * @param graph graf
      * @param nodes podzbiór węzłów grafu
      * @return      podgraf indukowany na podzbiorze węzłów grafu
      */
     public static Graph getInducedSubgraph(Graph graph, Collection<Node> nodes) {
-        int maxNodeCount = nodes.size();
-        int maxEdgeCount = maxNodeCount * (maxNodeCount-1) / 2;
+        boolean[] nodeMask = new boolean[graph.getNodeCount()];
+        int edgeCount = 0;
+        for (Node node : nodes) {
+            nodeMask[node.getIndex()] = true;
+        }
+        for (Node node : nodes) {
+            for (Edge edge : node.getEachEdge()) {
+                if (nodeMask[edge.getOpposite(node).getIndex()]) {
+                    ++edgeCount;
+                }
+            }
+        }
 
         Graph newGraph = new SingleGraph(graph.getId() + "_induced", true, false,
-                maxNodeCount, maxEdgeCount);
+                nodes.size(), edgeCount / 2 + 1);
 
         for (Node node : nodes) {
             addNodeWithAllAttributes(newGraph, node);
         }
 
-        List<String> nodePairIds = getAllNodeIdPairs(nodes);
-        for (String id : nodePairIds) {
-            Edge edge = graph.getEdge(id);
-            if (edge != null) {
-                String[] pair = id.split(":");
-                addEdgeWithAllAttributes(newGraph, edge, id, pair[0], pair[1]);
+        // Krawędź dodawana jest przy przeglądzie węzła o niższym indeksie (pętle - jednokrotnie):
+        for (Node node : nodes) {
+            for (Edge edge : node.getEachEdge()) {
+                Node opposite = edge.getOpposite(node);
+                if (nodeMask[opposite.getIndex()] && node.getIndex() <= opposite.getIndex()
+                        && newGraph.getEdge(edge.getId()) == null) {
+                    addEdgeWithAllAttributes(newGraph, edge, edge.getId(), edge.getNode0().getId(),
+                            edge.getNode1().getId());
+                }
             }
         }
 
@@ -0,0 +1,304 @@
+package pl.edu.pw.elka.gis.steinar.algorithms;
+
+import pl.edu.pw.elka.gis.steinar.algorithms.queue.PriorityQueueType;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Rzadki graf odległości między terminalami wyznaczany z podziału grafu na obszary Voronoi terminali
+ * (konstrukcja Mehlhorna).
+ *
+ * Jeden wieloźródłowy przebieg algorytmu Dijkstry z wszystkich terminali przypisuje każdy węzeł do obszaru
+ * najbliższego terminala. Krawędź (u, v) łącząca różne obszary wyznacza połączenie terminali tych obszarów
+ * o wadze d(u) + w(u, v) + d(v) - dla każdej pary sąsiednich obszarów do grafu odległości trafia jedynie
+ * najtańsze z nich. Minimalne drzewo rozpinające tego grafu jest jednocześnie minimalnym drzewem rozpinającym
+ * pełnego grafu odległości między terminalami.
+ *
+ * Obiekt można wykorzystywać do kolejnych obliczeń na tym samym grafie ({@link #compute(int[], int, boolean[])}) -
+ * obszar roboczy algorytmu Dijkstry i tablice indeksowane numerem węzła alokowane są raz, a przed obliczeniem
+ * przywracany jest stan jedynie węzłów przypisanych do obszarów w poprzednim obliczeniu.
+ */
+class VoronoiDistanceNetwork {
+
+    private final CompactGraph graph;
+    private final PriorityQueueType queueType;
+    private final Dijkstra dijkstra;
+    // Terminal obszaru węzła (-1 - węzeł nieosiągnięty) i węzły, którym go przypisano:
+    private final int[] base;
+    private final int[] assignedNodes;
+    private int assignedCount;
+    private final int[] terminalPositions;
+
+    // Bufory kandydatów na krawędzie grafu odległości i ich grupowania według obszarów:
+    private int[] candidates = new int[16];
+    private int[] candidateRegion0 = new int[16];
+    private int[] candidateRegion1 = new int[16];
+    private int[] candidateWeight = new int[16];
+    private int[] grouped = new int[16];
+    private boolean[] selected = new boolean[16];
+    private int[] groupStart = new int[0];
+    private int[] groupPosition = new int[0];
+    private int[] best = new int[0];
+    private int[] neighbours = new int[0];
+    // Bufory odwzorowania drzewa na krawędzie grafu:
+    private boolean[] pathEdgeMask;
+    private int[] pathEdges = new int[16];
+
+    // Krawędź grafu odpowiadająca i-tej krawędzi grafu odległości:
+    private int[] bridgeEdges;
+    private CompactGraph network;
+    private Prim prim;
+
+    /**
+     * Obiekt do wielokrotnego wyznaczania grafu odległości metodą {@link #compute(int[], int, boolean[])}.
+     *
+     * @param graph     graf
+     * @param queueType rodzaj kolejki priorytetowej
+     */
+    VoronoiDistanceNetwork(CompactGraph graph, PriorityQueueType queueType) {
+        this.graph = graph;
+        this.queueType = queueType;
+        this.dijkstra = new Dijkstra();
+        this.dijkstra.setQueueType(queueType);
+        this.base = new int[graph.getNodeCount()];
+        this.assignedNodes = new int[graph.getNodeCount()];
+        this.terminalPositions = new int[graph.getNodeCount()];
+        Arrays.fill(base, -1);
+    }
+
+    /**
+     * @param graph     graf
+     * @param terminals indeksy terminali (węzeł i grafu odległości odpowiada terminalowi terminals[i])
+     * @param nodeMask  opcjonalna maska węzłów ograniczająca graf do podgrafu indukowanego (może być null)
+     * @param queueType rodzaj kolejki priorytetowej
+     */
+    VoronoiDistanceNetwork(CompactGraph graph, int[] terminals, boolean[] nodeMask, PriorityQueueType queueType) {
+        this(graph, queueType);
+        compute(terminals, terminals.length, nodeMask);
+    }
+
+    /**
+     * Wyznaczenie grafu odległości (i jego minimalnego drzewa rozpinającego) dla nowego zbioru terminali.
+     *
+     * @param terminals     tablica z indeksami terminali na pozycjach 0..terminalCount - 1 (węzeł i grafu
+     *                      odległości odpowiada terminalowi terminals[i])
+     * @param terminalCount liczba terminali (dodatnia)
+     * @param nodeMask      opcjonalna maska węzłów ograniczająca graf do podgrafu indukowanego (może być null)
+     */
+    void compute(int[] terminals, int terminalCount, boolean[] nodeMask) {
+        this.dijkstra.init(graph, terminals, terminalCount);
+        this.dijkstra.setNodeMask(nodeMask);
+        this.dijkstra.compute();
+        findVoronoiBases(terminals, terminalCount);
+
+        for (int i = 0; i < terminalCount; ++i) {
+            terminalPositions[terminals[i]] = i;
+        }
+
+        // Krawędzie łączące różne obszary (obszar o mniejszym numerze jako pierwszy):
+        int candidateCount = 0;
+        for (int e = 0; e < graph.getEdgeCount(); ++e) {
+            int u = graph.getEdgeNode0(e), v = graph.getEdgeNode1(e);
+            if (base[u] < 0 || base[v] < 0 || base[u] == base[v]) {
+                continue;
+            }
+            if (candidateCount == candidates.length) {
+                growCandidates();
+            }
+            int region0 = terminalPositions[base[u]], region1 = terminalPositions[base[v]];
+            candidates[candidateCount] = e;
+            candidateRegion0[candidateCount] = Math.min(region0, region1);
+            candidateRegion1[candidateCount] = Math.max(region0, region1);
+            candidateWeight[candidateCount] = dijkstra.getDistance(u) + graph.getEdgeWeight(e)
+                    + dijkstra.getDistance(v);
+            ++candidateCount;
+        }
+
+        // Grupowanie kandydatów według pierwszego obszaru (sortowanie przez zliczanie) i wybór najtańszego
+        // kandydata dla każdego drugiego obszaru grupy - O(m + k) bez haszowania:
+        int regionCount = terminalCount;
+        ensureRegionCapacity(regionCount);
+        Arrays.fill(groupStart, 0, regionCount + 1, 0);
+        for (int c = 0; c < candidateCount; ++c) {
+            groupStart[candidateRegion0[c] + 1]++;
+        }
+        for (int r = 0; r < regionCount; ++r) {
+            groupStart[r + 1] += groupStart[r];
+        }
+        System.arraycopy(groupStart, 0, groupPosition, 0, regionCount);
+        for (int c = 0; c < candidateCount; ++c) {
+            grouped[groupPosition[candidateRegion0[c]]++] = c;
+        }
+
+        // Najtańszy kandydat łączący bieżący obszar z danym obszarem (best[r] == -1 - brak, także między
+        // obliczeniami):
+        int count = 0;
+        for (int r = 0; r < regionCount; ++r) {
+            int neighbourCount = 0;
+            for (int i = groupStart[r]; i < groupStart[r + 1]; ++i) {
+                int c = grouped[i];
+                int other = candidateRegion1[c];
+                if (best[other] < 0) {
+                    best[other] = c;
+                    neighbours[neighbourCount++] = other;
+                } else if (candidateWeight[c] < candidateWeight[best[other]]) {
+                    best[other] = c;
+                }
+            }
+            for (int i = 0; i < neighbourCount; ++i) {
+                selected[best[neighbours[i]]] = true;
+                best[neighbours[i]] = -1;
+            }
+            count += neighbourCount;
+        }
+
+        // Krawędzie grafu odległości w kolejności krawędzi grafu (jak przed usunięciem droższych kandydatów):
+        int[] bridges = new int[count];
+        int[] bridgeNode0 = new int[count];
+        int[] bridgeNode1 = new int[count];
+        int[] bridgeWeight = new int[count];
+        for (int c = 0, i = 0; i < count; ++c) {
+            if (selected[c]) {
+                selected[c] = false;
+                bridges[i] = candidates[c];
+                bridgeNode0[i] = candidateRegion0[c];
+                bridgeNode1[i] = candidateRegion1[c];
+                bridgeWeight[i] = candidateWeight[c];
+                ++i;
+            }
+        }
+
+        this.bridgeEdges = bridges;
+        this.network = new CompactGraph(regionCount, bridgeNode0, bridgeNode1, bridgeWeight);
+        // Kolejka obszaru roboczego zależy od wag grafu, więc algorytm Prima tworzony jest dla każdego grafu
+        // odległości:
+        this.prim = new Prim();
+        this.prim.setQueueType(queueType);
+        this.prim.init(network, 0);
+        this.prim.compute();
+    }
+
+    /**
+     * Czy minimalne drzewo rozpinające grafu odległości łączy wszystkie terminale.
+     */
+    boolean isConnected() {
+        return prim.getResultantTreeEdgeCount() == network.getNodeCount() - 1;
+    }
+
+    /**
+     * Waga minimalnego drzewa rozpinającego grafu odległości (długość najkrótszej sieci odległości między
+     * terminalami).
+     */
+    int getMinimumSpanningTreeWeight() {
+        return prim.getMinimumSpanningTreeWeight();
+    }
+
+    /**
+     * Odwzorowanie minimalnego drzewa rozpinającego grafu odległości na krawędzie grafu: krawędzie łączące
+     * obszary i ścieżki z ich końców do terminali obu obszarów.
+     *
+     * @return  indeksy krawędzi grafu
+     */
+    int[] getMinimumSpanningTreePaths() {
+        if (pathEdgeMask == null) {
+            pathEdgeMask = new boolean[graph.getEdgeCount()];
+        }
+        int count = 0;
+        for (int bridge : prim.getMinimumSpanningTreeEdges()) {
+            count = markEdge(bridgeEdges[bridge], count);
+            count = markPathToBase(graph.getEdgeNode0(bridgeEdges[bridge]), count);
+            count = markPathToBase(graph.getEdgeNode1(bridgeEdges[bridge]), count);
+        }
+
+        int[] edges = Arrays.copyOf(pathEdges, count);
+        for (int edge : edges) {
+            pathEdgeMask[edge] = false;
+        }
+        Arrays.sort(edges);
+        return edges;
+    }
+
+    /**
+     * Wyznacza terminal, do którego obszaru Voronoi należy każdy węzeł (terminal najbliższy, -1 dla węzłów
+     * nieosiągalnych). Krawędzie drzewa najkrótszych ścieżek dodawane są w kolejności przetwarzania węzłów,
+     * więc rodzic węzła ma zawsze przypisany obszar wcześniej niż sam węzeł.
+     */
+    private void findVoronoiBases(int[] terminals, int terminalCount) {
+        for (int i = 0; i < assignedCount; ++i) {
+            base[assignedNodes[i]] = -1;
+        }
+        assignedCount = 0;
+        for (int i = 0; i < terminalCount; ++i) {
+            assign(terminals[i], terminals[i]);
+        }
+
+        SearchWorkspace workspace = dijkstra.getWorkspace();
+        for (int i = 0; i < dijkstra.getResultantTreeEdgeCount(); ++i) {
+            int e = dijkstra.getResultantTreeEdge(i);
+            int u = graph.getEdgeNode0(e), v = graph.getEdgeNode1(e);
+            if (workspace.getParentEdge(u) == e) {
+                assign(u, base[v]);
+            } else {
+                assign(v, base[u]);
+            }
+        }
+    }
+
+    private void assign(int node, int terminal) {
+        if (base[node] < 0) {
+            assignedNodes[assignedCount++] = node;
+        }
+        base[node] = terminal;
+    }
+
+    /**
+     * Oznacza krawędzie ścieżki od węzła do terminala jego obszaru. Wędrówka kończy się na pierwszej krawędzi
+     * oznaczonej wcześniej, bo dalsza część ścieżki została już wtedy oznaczona.
+     *
+     * @return  liczba oznaczonych krawędzi
+     */
+    private int markPathToBase(int node, int count) {
+        SearchWorkspace workspace = dijkstra.getWorkspace();
+        int edge = workspace.getParentEdge(node);
+        while (edge >= 0 && !pathEdgeMask[edge]) {
+            count = markEdge(edge, count);
+            node = graph.getOpposite(edge, node);
+            edge = workspace.getParentEdge(node);
+        }
+        return count;
+    }
+
+    private int markEdge(int edge, int count) {
+        if (pathEdgeMask[edge]) {
+            return count;
+        }
+        if (count == pathEdges.length) {
+            pathEdges = Arrays.copyOf(pathEdges, 2 * count);
+        }
+        pathEdgeMask[edge] = true;
+        pathEdges[count] = edge;
+        return count + 1;
+    }
+
+    private void growCandidates() {
+        int capacity = 2 * candidates.length;
+        candidates = Arrays.copyOf(candidates, capacity);
+        candidateRegion0 = Arrays.copyOf(candidateRegion0, capacity);
+        candidateRegion1 = Arrays.copyOf(candidateRegion1, capacity);
+        candidateWeight = Arrays.copyOf(candidateWeight, capacity);
+        grouped = new int[capacity];
+        selected = new boolean[capacity];
+    }
+
+    private void ensureRegionCapacity(int regionCount) {
+        if (best.length < regionCount) {
+            groupStart = new int[regionCount + 1];
+            groupPosition = new int[regionCount];
+            neighbours = new int[regionCount];
+            best = new int[regionCount];
+            Arrays.fill(best, -1);
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+package pl.edu.pw.elka.gis.steinar.algorithms.exceptions;
+
+public class DreyfusWagnerTooManyTerminalsException extends RuntimeException {
+    public DreyfusWagnerTooManyTerminalsException(int maxTerminalCount) {
+        super("Graph has to have at most " + maxTerminalCount + " terminal nodes.");
+    }
+}
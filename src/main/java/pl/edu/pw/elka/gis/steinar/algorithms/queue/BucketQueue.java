@@ -0,0 +1,129 @@
+package pl.edu.pw.elka.gis.steinar.algorithms.queue;
+
+import java.util.Arrays;
+
+/**
+ * Kolejka kubełkowa Diala dla nieujemnych kluczy całkowitych.
+ *
+ * Kubełki tworzą bufor cykliczny o rozmiarze maxKeySpread+1, więc w każdej chwili różnica między największym
+ * a najmniejszym kluczem w kolejce nie może przekraczać maxKeySpread. Warunek ten spełniają algorytm Dijkstry
+ * (klucze z przedziału [d, d + maksymalna waga krawędzi]) i algorytm Prima (klucze są wagami krawędzi)
+ * przy maxKeySpread równym maksymalnej wadze krawędzi. Elementy kubełka tworzą listę dwukierunkową
+ * zapisaną w tablicach, dzięki czemu wszystkie operacje poza extractMin działają w czasie stałym.
+ */
+public class BucketQueue implements IntPriorityQueue {
+
+    private static final int NONE = -1;
+
+    private final int bucketCount;
+    private final int[] bucketHeads;
+    private final int[] next;
+    private final int[] previous;
+    private final int[] keys;
+    private final boolean[] inQueue;
+    private int size;
+    private int currentKey;
+
+    public BucketQueue(int capacity, int maxKeySpread) {
+        this.bucketCount = maxKeySpread + 1;
+        this.bucketHeads = new int[bucketCount];
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.keys = new int[capacity];
+        this.inQueue = new boolean[capacity];
+        Arrays.fill(bucketHeads, NONE);
+    }
+
+    @Override
+    public void add(int element, int key) {
+        if (size == 0 || key < currentKey) {
+            currentKey = key;
+        }
+        keys[element] = key;
+        inQueue[element] = true;
+        link(element);
+        ++size;
+    }
+
+    @Override
+    public void decreaseKey(int element, int key) {
+        unlink(element);
+        keys[element] = key;
+        if (key < currentKey) {
+            currentKey = key;
+        }
+        link(element);
+    }
+
+    @Override
+    public int extractMin() {
+        int bucket = currentKey % bucketCount;
+        while (bucketHeads[bucket] == NONE) {
+            ++currentKey;
+            if (++bucket == bucketCount) {
+                bucket = 0;
+            }
+        }
+        int min = bucketHeads[bucket];
+        unlink(min);
+        inQueue[min] = false;
+        --size;
+        return min;
+    }
+
+    @Override
+    public int getKey(int element) {
+        return keys[element];
+    }
+
+    @Override
+    public boolean contains(int element) {
+        return inQueue[element];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket < bucketCount && size > 0; ++bucket) {
+            for (int element = bucketHeads[bucket]; element != NONE; element = next[element]) {
+                inQueue[element] = false;
+                --size;
+            }
+            bucketHeads[bucket] = NONE;
+        }
+        size = 0;
+    }
+
+    private void link(int element) {
+        int bucket = keys[element] % bucketCount;
+        int head = bucketHeads[bucket];
+        next[element] = head;
+        previous[element] = NONE;
+        if (head != NONE) {
+            previous[head] = element;
+        }
+        bucketHeads[bucket] = element;
+    }
+
+    private void unlink(int element) {
+        int prev = previous[element], nxt = next[element];
+        if (prev != NONE) {
+            next[prev] = nxt;
+        } else {
+            bucketHeads[keys[element] % bucketCount] = nxt;
+        }
+        if (nxt != NONE) {
+            previous[nxt] = prev;
+        }
+    }
+
+}
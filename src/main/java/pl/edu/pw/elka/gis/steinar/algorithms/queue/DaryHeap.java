@@ -0,0 +1,133 @@
+package pl.edu.pw.elka.gis.steinar.algorithms.queue;
+
+/**
+ * Indeksowany kopiec d-arny przechowywany w tablicach typów prostych.
+ */
+public class DaryHeap implements IntPriorityQueue {
+
+    public static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+    private final int[] heap;
+    private final int[] positions;
+    private final int[] keys;
+    private int size;
+
+    public DaryHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    public DaryHeap(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity has to be at least 2.");
+        }
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new int[capacity];
+        java.util.Arrays.fill(positions, -1);
+    }
+
+    @Override
+    public void add(int element, int key) {
+        keys[element] = key;
+        heap[size] = element;
+        positions[element] = size;
+        siftUp(size++);
+    }
+
+    @Override
+    public void decreaseKey(int element, int key) {
+        keys[element] = key;
+        siftUp(positions[element]);
+    }
+
+    @Override
+    public int extractMin() {
+        int min = heap[0];
+        positions[min] = -1;
+        if (--size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    @Override
+    public int getKey(int element) {
+        return keys[element];
+    }
+
+    @Override
+    public boolean contains(int element) {
+        return positions[element] >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; ++i) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int element = heap[position];
+        int key = keys[element];
+        while (position > 0) {
+            int parentPosition = (position - 1) / arity;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+
+    private void siftDown(int position) {
+        int element = heap[position];
+        int key = keys[element];
+        while (true) {
+            int firstChild = position * arity + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + arity, size);
+            int minChild = firstChild;
+            int minKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; ++child) {
+                int childKey = keys[heap[child]];
+                if (childKey < minKey) {
+                    minChild = child;
+                    minKey = childKey;
+                }
+            }
+            if (minKey >= key) {
+                break;
+            }
+            int child = heap[minChild];
+            heap[position] = child;
+            positions[child] = position;
+            position = minChild;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+
+}
@@ -0,0 +1,67 @@
+package pl.edu.pw.elka.gis.steinar.algorithms.queue;
+
+import org.graphstream.algorithm.util.FibonacciHeap;
+
+/**
+ * Adapter kopca Fibonacciego z biblioteki GraphStream (dotychczasowa implementacja kolejki algorytmów
+ * Dijkstry i Prima), pozostawiony do porównań wydajności.
+ */
+public class FibonacciQueue implements IntPriorityQueue {
+
+    private final FibonacciHeap<Integer, Integer> heap = new FibonacciHeap<>();
+    private final FibonacciHeap<Integer, Integer>.Node[] handles;
+    private final int[] keys;
+
+    @SuppressWarnings("unchecked")
+    public FibonacciQueue(int capacity) {
+        this.handles = new FibonacciHeap.Node[capacity];
+        this.keys = new int[capacity];
+    }
+
+    @Override
+    public void add(int element, int key) {
+        keys[element] = key;
+        handles[element] = heap.add(key, element);
+    }
+
+    @Override
+    public void decreaseKey(int element, int key) {
+        keys[element] = key;
+        heap.decreaseKey(handles[element], key);
+    }
+
+    @Override
+    public int extractMin() {
+        int min = heap.extractMin();
+        handles[min] = null;
+        return min;
+    }
+
+    @Override
+    public int getKey(int element) {
+        return keys[element];
+    }
+
+    @Override
+    public boolean contains(int element) {
+        return handles[element] != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public void clear() {
+        while (!heap.isEmpty()) {
+            handles[heap.extractMin()] = null;
+        }
+    }
+
+}
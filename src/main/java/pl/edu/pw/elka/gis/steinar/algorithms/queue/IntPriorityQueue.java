@@ -0,0 +1,42 @@
+package pl.edu.pw.elka.gis.steinar.algorithms.queue;
+
+/**
+ * Indeksowana kolejka priorytetowa elementów będących liczbami całkowitymi z przedziału [0, capacity)
+ * (indeksami węzłów grafu) o całkowitych kluczach.
+ *
+ * Klucz elementu pozostaje dostępny przez {@link #getKey(int)} również po jego zdjęciu z kolejki
+ * (do czasu ponownego dodania elementu).
+ */
+public interface IntPriorityQueue {
+
+    /**
+     * Dodanie elementu, który nie znajduje się w kolejce.
+     */
+    void add(int element, int key);
+
+    /**
+     * Zmniejszenie klucza elementu znajdującego się w kolejce.
+     */
+    void decreaseKey(int element, int key);
+
+    /**
+     * Zdjęcie z kolejki elementu o najmniejszym kluczu.
+     *
+     * @return  zdjęty element
+     */
+    int extractMin();
+
+    int getKey(int element);
+
+    boolean contains(int element);
+
+    boolean isEmpty();
+
+    int size();
+
+    /**
+     * Usunięcie wszystkich elementów z kolejki.
+     */
+    void clear();
+
+}
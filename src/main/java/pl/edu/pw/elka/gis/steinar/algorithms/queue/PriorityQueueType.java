@@ -0,0 +1,56 @@
+package pl.edu.pw.elka.gis.steinar.algorithms.queue;
+
+/**
+ * Rodzaje kolejek priorytetowych dostępnych dla algorytmów Dijkstry i Prima.
+ */
+public enum PriorityQueueType {
+    /**
+     * Kopiec Fibonacciego z biblioteki GraphStream.
+     */
+    FIBONACCI_HEAP,
+    /**
+     * Indeksowany kopiec binarny.
+     */
+    BINARY_HEAP,
+    /**
+     * Indeksowany kopiec 4-arny.
+     */
+    DARY_HEAP,
+    /**
+     * Kolejka kubełkowa Diala (wymaga nieujemnych wag krawędzi).
+     */
+    BUCKET_QUEUE,
+    /**
+     * Kolejka kubełkowa dla małych wag krawędzi, w przeciwnym razie kopiec 4-arny.
+     */
+    AUTO;
+
+    /**
+     * Maksymalna waga krawędzi, przy której wariant AUTO wybiera kolejkę kubełkową.
+     */
+    public static final int BUCKET_QUEUE_MAX_WEIGHT = 1024;
+
+    /**
+     * Utworzenie kolejki danego rodzaju.
+     *
+     * @param capacity      liczba możliwych elementów (węzłów grafu)
+     * @param maxEdgeWeight maksymalna waga krawędzi grafu
+     * @return              pusta kolejka
+     */
+    public IntPriorityQueue create(int capacity, int maxEdgeWeight) {
+        switch (this) {
+            case FIBONACCI_HEAP:
+                return new FibonacciQueue(capacity);
+            case BINARY_HEAP:
+                return new DaryHeap(capacity, 2);
+            case DARY_HEAP:
+                return new DaryHeap(capacity);
+            case BUCKET_QUEUE:
+                return new BucketQueue(capacity, maxEdgeWeight);
+            default:
+                return maxEdgeWeight <= BUCKET_QUEUE_MAX_WEIGHT
+                        ? new BucketQueue(capacity, maxEdgeWeight)
+                        : new DaryHeap(capacity);
+        }
+    }
+}
@@ -43,7 +43,7 @@ public class DisplaySteinerGraph {
             streamGraph.addAttribute("ui.stylesheet", styleSheet);
 
             streamGraph.getEdgeSet().stream()
-                    .filter(edge -> edge.hasAttribute(RESULT_TREE_ATTR) && edge.getAttribute(RESULT_TREE_ATTR, Boolean.class))
+                    .filter(graph::isInResultTree)
                     .forEach(edge -> edge.setAttribute("ui.class", "solution"));
             streamGraph.getEdgeSet().forEach(edge -> edge.setAttribute("ui.label", edge.getAttribute(WEIGHT_ATTR, Integer.class)));
 
@@ -14,7 +14,7 @@ import java.nio.file.StandardOpenOption;
 public class CSVWriter {
 
     private final String HEADER = "Nazwa grafu,Liczba wierzchołków,Liczba krawędzi,Liczba terminali," +
-            "Czas wykonania [s],Optymalny koszt drzewa,Koszt drzewa";
+            "Czas wykonania [s],Optymalny koszt drzewa,Koszt drzewa,Dolne ograniczenie,Luka [%]";
 
     private final String filename;
 
@@ -47,9 +47,13 @@ public class CSVWriter {
         int terminalCount = output.getGraph().getTerminalCount();
         float algorithmRunningTime = output.getMeasurement().getTime();
         int steinerTreeWeight = output.getMeasurement().getLength();
+        Integer lowerBound = output.getMeasurement().getLowerBound();
+        Float gap = output.getMeasurement().getGap();
 
         String line = graphName + "," + graphNodeCount + "," + graphEdgeCount + "," + terminalCount + "," +
-                algorithmRunningTime + "," + optimumWeight + "," + steinerTreeWeight + "," + System.lineSeparator();
+                algorithmRunningTime + "," + optimumWeight + "," + steinerTreeWeight + "," +
+                (lowerBound != null ? lowerBound : "") + "," + (gap != null ? 100 * gap : "") + "," +
+                System.lineSeparator();
         appendContent(line);
     }
 
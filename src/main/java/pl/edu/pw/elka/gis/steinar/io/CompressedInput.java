@@ -0,0 +1,104 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Rozpoznawanie skompresowanych plików wejściowych po pierwszych bajtach i strumieniowa dekompresja
+ * kodekami JDK (bez plików tymczasowych). Obsługiwane są formaty gzip (także wieloczłonowe, np. z pigz),
+ * zlib i zip (odczytywany jest pierwszy plik archiwum); dla formatów, których JDK nie obsługuje (xz, bzip2),
+ * zgłaszany jest czytelny błąd.
+ */
+final class CompressedInput {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAGIC_LENGTH = 6;
+
+    private static final byte[] GZIP_MAGIC = {0x1F, (byte) 0x8B};
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 0x03, 0x04};
+    private static final byte[] XZ_MAGIC = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0x00};
+    private static final byte[] BZIP2_MAGIC = {'B', 'Z', 'h'};
+
+    private CompressedInput() {
+    }
+
+    /**
+     * Opakowanie strumienia w dekompresor odpowiedni dla jego zawartości. Strumień nieskompresowany zwracany jest
+     * bez zmian (poza buforowaniem potrzebnym do odczytu sygnatury).
+     *
+     * @param input strumień pliku
+     * @return      strumień zdekompresowanej zawartości
+     */
+    static InputStream decompress(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        try {
+            return decompress(buffered);
+        } catch (IOException ex) {
+            buffered.close();
+            throw ex;
+        }
+    }
+
+    private static InputStream decompress(BufferedInputStream buffered) throws IOException {
+        byte[] magic = new byte[MAGIC_LENGTH];
+        buffered.mark(MAGIC_LENGTH);
+        int length = 0, read;
+        while (length < MAGIC_LENGTH && (read = buffered.read(magic, length, MAGIC_LENGTH - length)) > 0) {
+            length += read;
+        }
+        buffered.reset();
+
+        if (startsWith(magic, length, GZIP_MAGIC)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        if (isZlibHeader(magic, length)) {
+            return new InflaterInputStream(buffered);
+        }
+        if (startsWith(magic, length, ZIP_MAGIC)) {
+            ZipInputStream zip = new ZipInputStream(buffered);
+            ZipEntry entry = zip.getNextEntry();
+            while (entry != null && entry.isDirectory()) {
+                entry = zip.getNextEntry();
+            }
+            if (entry == null) {
+                throw new IOException("Empty zip archive.");
+            }
+            return zip;
+        }
+        if (startsWith(magic, length, XZ_MAGIC) || startsWith(magic, length, BZIP2_MAGIC)) {
+            throw new IOException("Unsupported compression format (xz/bzip2) - decompress the file or recompress "
+                    + "it with gzip.");
+        }
+        return buffered;
+    }
+
+    private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Nagłówek zlib (RFC 1950): metoda deflate z oknem do 32KB, a oba bajty tworzą liczbę podzielną przez 31.
+     * Pliki STP zaczynają się od cyfr, więc nie mogą zostać z nim pomylone.
+     */
+    private static boolean isZlibHeader(byte[] data, int length) {
+        if (length < 2) {
+            return false;
+        }
+        int cmf = data[0] & 0xFF, flg = data[1] & 0xFF;
+        return (cmf & 0x0F) == 8 && (cmf >> 4) <= 7 && (cmf << 8 | flg) % 31 == 0;
+    }
+
+}
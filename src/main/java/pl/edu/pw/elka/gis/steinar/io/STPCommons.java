@@ -2,5 +2,7 @@ package pl.edu.pw.elka.gis.steinar.io;
 
 public class STPCommons {
     static public final String STP_HEADER = "33D32945 STP File, STP Format Version 1.0";
+    // Liczba rozpoczynająca nagłówek pliku (reszta nagłówka bywa zapisywana różnie, np. "Version  1.00"):
+    static public final String STP_MAGIC = "33D32945";
     static public final String END_SECTION = "END";
 }
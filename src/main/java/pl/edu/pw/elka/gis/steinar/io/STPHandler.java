@@ -0,0 +1,27 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+/**
+ * Odbiorca elementów pliku STP odczytywanych przez {@link STPParser}. Węzły identyfikowane są numerami z pliku
+ * (numeracja od 1).
+ */
+public interface STPHandler {
+
+    default void name(String name) {
+    }
+
+    void nodes(int nodeCount);
+
+    default void edges(int edgeCount) {
+    }
+
+    void edge(int node0, int node1, int weight);
+
+    default void terminals(int terminalCount) {
+    }
+
+    void terminal(int node);
+
+    default void solutionEdge(int node0, int node1, int weight) {
+    }
+
+}
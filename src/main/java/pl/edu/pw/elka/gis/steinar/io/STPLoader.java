@@ -1,203 +1,194 @@
 package pl.edu.pw.elka.gis.steinar.io;
 
 import lombok.Getter;
-import org.graphstream.graph.Edge;
 import pl.edu.pw.elka.gis.steinar.io.exceptions.NotConsistentFileException;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
 import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static pl.edu.pw.elka.gis.steinar.io.STPCommons.END_SECTION;
-import static pl.edu.pw.elka.gis.steinar.io.STPCommons.STP_HEADER;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * Klasa odczytywania problemów minimalnego drzewa Steinera z plików STP.
+ *
+ * Plik odczytywany jest przez {@link STPParser} - z zasobów programu (classpath) albo, jeśli zasób o podanej nazwie
+ * nie istnieje, z dowolnej ścieżki w systemie plików. Pliki skompresowane (gzip, zlib, zip) rozpoznawane są
+ * po zawartości i dekompresowane w locie ({@link CompressedInput}). Krawędzie i terminale zapisywane są od razu do tablic
+ * liczb całkowitych, z których budowany jest {@link CompactGraph} - graf GraphStream powstaje dopiero wtedy,
+ * gdy jest potrzebny (zob. {@link SteinerGraph#getGraph()}).
  */
 public class STPLoader {
-    static private final Pattern SECTION_PATTERN = Pattern.compile("SECTION\\s+(\\w+)");
-    static private final Pattern COMM_NAME_PATTERN = Pattern.compile("Name\\s+\"(.*)\"");
-    static private final Pattern GRAPH_NODES_PATTERN = Pattern.compile("Nodes\\s+(\\d+)");
-    static private final Pattern GRAPH_EDGES_PATTERN = Pattern.compile("Edges\\s+(\\d+)");
-    static private final Pattern GRAPH_ONE_EDGE_PATTERN = Pattern.compile("E\\s+(\\d+)\\s+(\\d+)\\s+(\\d+)");
-    static private final Pattern TERMINAL_COUNT_PATTERN = Pattern.compile("Terminals\\s+(\\d+)");
-    static private final Pattern TERMINAL_ONE_PATTERN = Pattern.compile("T\\s+(\\d+)");
-    static private final Pattern SOLUTION_ONE_PATTERN = Pattern.compile("S\\s+(\\d+)\\s+(\\d+)\\s+(\\d+)");
 
     @Getter
-    private final SteinerGraph resultGraph = new SteinerGraph();
-
-    private Scanner scanner;
+    private SteinerGraph resultGraph;
 
     public STPLoader(String filename) throws FileNotFoundException {
-        ClassLoader classLoader = getClass().getClassLoader();
-
-        try {
-            File file = new File(classLoader.getResource(filename).getFile());
-            scanner = new Scanner(file);
-        } catch (NullPointerException ex) {
-            throw new FileNotFoundException(filename);
-        }
+        load(open(filename));
+    }
 
-        try {
-            readAndCheckHeader();
-
-            String line;
-            while (!((line = readNextLine()).equals("EOF"))) {
-                Matcher mather = SECTION_PATTERN.matcher(line);
-
-                if (mather.matches()) {
-                    String sectionName = mather.group(1);
-                    switch (sectionName) {
-                        case "Comment":
-                            loadComment();
-                            break;
-                        case "Graph":
-                            loadGraph();
-                            break;
-                        case "Terminals":
-                            loadTerminals();
-                            break;
-                        case "Solution":
-                            loadSolution();
-                            break;
-                        case "Result":
-                            loadResult();
-                            break;
-                        default:
-                            throw new NotConsistentFileException("Cannot recognize section");
-                    }
-                }
+    public STPLoader(Path path) throws FileNotFoundException {
+        load(open(path));
+    }
 
-                if (!scanner.hasNextLine()) {
-                    throw new NotConsistentFileException("Missing EOF.");
-                }
-            }
-        } finally {
-            scanner.close();
+    /**
+     * Otwarcie pliku z zasobów programu albo (jeśli zasób nie istnieje) z systemu plików.
+     *
+     * @param filename  nazwa zasobu lub ścieżka pliku
+     * @return          strumień ze (zdekompresowaną) zawartością pliku
+     */
+    static InputStream open(String filename) throws FileNotFoundException {
+        InputStream resource = STPLoader.class.getClassLoader().getResourceAsStream(filename);
+        if (resource != null) {
+            return decompress(resource, filename);
         }
+        return open(Paths.get(filename));
     }
 
-    private void loadResult() {
-        // ignoruj sekcję Result:
-        while (!readNextLine().equals(END_SECTION));
+    static InputStream open(Path path) throws FileNotFoundException {
+        InputStream input;
+        try {
+            input = Files.newInputStream(path);
+        } catch (NoSuchFileException ex) {
+            throw new FileNotFoundException(path.toString());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open file " + path, ex);
+        }
+        return decompress(input, path.toString());
     }
 
-    private void readAndCheckHeader() {
-        if (!readNextLine().equals(STP_HEADER)) {
-            throw new NotConsistentFileException("Wrong file header.");
+    private static InputStream decompress(InputStream input, String filename) {
+        try {
+            return CompressedInput.decompress(input);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read file " + filename, ex);
         }
     }
 
-    private void loadComment() {
-        String line;
-        while (!(line = readNextLine()).equals(END_SECTION)) {
-            Matcher mather = COMM_NAME_PATTERN.matcher(line);
-            if (mather.matches()) {
-                resultGraph.setName(mather.group(1));
-            }
+    private void load(InputStream input) {
+        CompactGraphBuilder builder = new CompactGraphBuilder();
+        try {
+            STPParser.parse(input, builder);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read STP file.", ex);
         }
+        resultGraph = builder.build();
 
+        System.out.println(String.format("Graph %s loaded correctly.", resultGraph.getName()));
     }
 
-    private void loadGraph() {
-        try {
-            Integer nodes = null, edges = null;
-            String line;
-
-            while (!(line = readNextLine()).equals(END_SECTION)) {
-                Matcher matcher = GRAPH_NODES_PATTERN.matcher(line);
-                if (matcher.matches()) {
-                    if (nodes != null) {
-                        throw new NotConsistentFileException("Second nodes count in Graph section");
-                    }
-                    String sys = matcher.group(1);
-                    nodes = Integer.valueOf(sys);
-                    for (Integer i = 0; i < nodes; ++i) {
-                        Integer idNew = i + 1;
-                        resultGraph.addNode(idNew.toString());
-                    }
-                }
-                matcher = GRAPH_EDGES_PATTERN.matcher(line);
-                if (matcher.matches()) {
-                    if (edges != null) {
-                        throw new NotConsistentFileException("Second edges count in Graph section");
-                    }
-                    edges = Integer.valueOf(matcher.group(1));
-                }
-                matcher = GRAPH_ONE_EDGE_PATTERN.matcher(line);
-                if (matcher.matches()) {
-                    if (nodes == null || edges == null) {
-                        throw new NotConsistentFileException("No nodes or edges count information before edge description.");
-                    }
-                    resultGraph.addEdge(matcher.group(1), matcher.group(2), Integer.valueOf(matcher.group(3)));
-                }
+    /**
+     * Zapis elementów odczytywanych z pliku do tablic - węzły otrzymują indeksy o 1 mniejsze od numerów z pliku,
+     * a krawędzie indeksy zgodne z kolejnością w pliku.
+     */
+    private static class CompactGraphBuilder implements STPHandler {
+
+        // Zadeklarowana liczba krawędzi nie jest wiarygodna - z góry rezerwowane jest co najwyżej tyle miejsc,
+        // a dalsze tablice rosną wraz z odczytywanymi krawędziami:
+        private static final int MAX_INITIAL_EDGE_CAPACITY = 1 << 20;
+
+        private String name;
+        private int nodeCount;
+        private int edgeCount;
+        private int declaredEdgeCount = -1;
+        private int[] edgeNode0 = new int[0];
+        private int[] edgeNode1 = new int[0];
+        private int[] edgeWeight = new int[0];
+        private final BitSet terminals = new BitSet();
+        // Krawędzie rozwiązania (pary węzłów) - wyszukiwane w grafie po jego zbudowaniu:
+        private int solutionEdgeCount;
+        private int[] solutionNodes = new int[0];
+
+        @Override
+        public void name(String name) {
+            this.name = name;
+        }
 
+        @Override
+        public void nodes(int nodeCount) {
+            this.nodeCount = nodeCount;
+        }
+
+        @Override
+        public void edges(int edgeCount) {
+            if (edgeCount < 0) {
+                throw new NotConsistentFileException("Invalid edge count " + edgeCount + ".");
             }
-            System.out.println(String.format("Graph %s loaded correctly.", getResultGraph().getName()));
+            this.declaredEdgeCount = edgeCount;
+            ensureEdgeCapacity(Math.min(edgeCount, MAX_INITIAL_EDGE_CAPACITY));
+        }
 
-        } catch (IndexOutOfBoundsException | IllegalStateException ex) {
-            throw new NotConsistentFileException("Cannot read Graph section. " + ex.getMessage());
+        @Override
+        public void edge(int node0, int node1, int weight) {
+            ensureEdgeCapacity(edgeCount + 1);
+            edgeNode0[edgeCount] = getNodeIndex(node0);
+            edgeNode1[edgeCount] = getNodeIndex(node1);
+            edgeWeight[edgeCount] = weight;
+            ++edgeCount;
         }
-    }
 
-    private void loadTerminals() {
-        try {
-            Integer terminalsCount = null;
-            String line;
-
-            while (!(line = readNextLine()).equals(END_SECTION)) {
-                Matcher matcher = TERMINAL_COUNT_PATTERN.matcher(line);
-                if (matcher.matches()) {
-                    if (terminalsCount != null) {
-                        throw new NotConsistentFileException("Second terminal in Graph section");
-                    }
-                    terminalsCount = Integer.valueOf(matcher.group(1));
-                }
+        @Override
+        public void terminal(int node) {
+            terminals.set(getNodeIndex(node));
+        }
 
-                matcher = TERMINAL_ONE_PATTERN.matcher(line);
-                if (matcher.matches()) {
-                    if (terminalsCount == null) {
-                        throw new NotConsistentFileException("No terminal count information before edge description.");
-                    }
-                    resultGraph.markAsTerminal(matcher.group(1));
-                }
+        @Override
+        public void solutionEdge(int node0, int node1, int weight) {
+            if (2 * solutionEdgeCount + 2 > solutionNodes.length) {
+                solutionNodes = Arrays.copyOf(solutionNodes, Math.max(16, 2 * solutionNodes.length));
             }
-        } catch (IndexOutOfBoundsException | IllegalStateException ex) {
-            throw new NotConsistentFileException("Cannot read Terminal section. " + ex.getMessage());
+            solutionNodes[2 * solutionEdgeCount] = getNodeIndex(node0);
+            solutionNodes[2 * solutionEdgeCount + 1] = getNodeIndex(node1);
+            ++solutionEdgeCount;
         }
-    }
 
-    private void loadSolution() {
-        try {
-            String line;
-            while (!(line = readNextLine()).equals(END_SECTION)) {
-
-                Matcher matcher = SOLUTION_ONE_PATTERN.matcher(line);
-                if (matcher.matches()) {
-                    Edge edge = resultGraph.getEdge(matcher.group(1), matcher.group(2));
-                    if (edge == null) {
-                        throw new NotConsistentFileException("No nodes or edges count information before edge description.");
-                    }
-                    resultGraph.markEdgeInResultTree(edge.getId());
+        SteinerGraph build() {
+            if (declaredEdgeCount >= 0 && declaredEdgeCount != edgeCount) {
+                throw new NotConsistentFileException(
+                        "Declared " + declaredEdgeCount + " edges, but " + edgeCount + " edges found.");
+            }
+            CompactGraph graph = new CompactGraph(nodeCount, trim(edgeNode0), trim(edgeNode1), trim(edgeWeight));
+            SteinerGraph steinerGraph = new SteinerGraph(name, graph, terminals);
+
+            int[] solution = new int[solutionEdgeCount];
+            for (int i = 0; i < solutionEdgeCount; ++i) {
+                int node0 = solutionNodes[2 * i], node1 = solutionNodes[2 * i + 1];
+                solution[i] = graph.findEdge(node0, node1);
+                if (solution[i] < 0) {
+                    throw new NotConsistentFileException(
+                            "Solution edge " + (node0 + 1) + " " + (node1 + 1) + " not in graph.");
                 }
+            }
+            steinerGraph.setResultTreeEdges(solution);
+            return steinerGraph;
+        }
 
+        private int getNodeIndex(int node) {
+            if (node < 1 || node > nodeCount) {
+                throw new NotConsistentFileException("Unknown node " + node + ".");
             }
-            System.out.println(resultGraph);
+            return node - 1;
+        }
 
-        } catch (IndexOutOfBoundsException | IllegalStateException ex) {
-            throw new NotConsistentFileException("Cannot read Graph section. " + ex.getMessage());
+        private void ensureEdgeCapacity(int capacity) {
+            if (capacity > edgeNode0.length) {
+                int newLength = Math.max(capacity, 2 * edgeNode0.length);
+                edgeNode0 = Arrays.copyOf(edgeNode0, newLength);
+                edgeNode1 = Arrays.copyOf(edgeNode1, newLength);
+                edgeWeight = Arrays.copyOf(edgeWeight, newLength);
+            }
         }
-    }
 
-    private String readNextLine() {
-        if (!scanner.hasNextLine()) {
-            throw new NotConsistentFileException("Missing line.");
+        private int[] trim(int[] array) {
+            return array.length == edgeCount ? array : Arrays.copyOf(array, edgeCount);
         }
-        return scanner.nextLine();
     }
 
 }
@@ -0,0 +1,155 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import pl.edu.pw.elka.gis.steinar.io.exceptions.NotConsistentFileException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static pl.edu.pw.elka.gis.steinar.io.STPCommons.END_SECTION;
+import static pl.edu.pw.elka.gis.steinar.io.STPCommons.STP_MAGIC;
+
+/**
+ * Parser plików STP przekazujący odczytane elementy do {@link STPHandler}.
+ *
+ * Plik dzielony jest na słowa przez {@link STPTokenizer}; każda linia sekcji rozpoznawana jest po pierwszym słowie,
+ * a liczby odczytywane są bezpośrednio z bajtów. Nieznane słowa kluczowe w sekcjach (np. Creator, Remark) i sekcje
+ * nieużywane przez program (Result, Coordinates itp.) są pomijane.
+ */
+public class STPParser {
+
+    private final STPTokenizer tokenizer;
+    private final STPHandler handler;
+
+    private boolean nodesRead, edgesRead, terminalsRead;
+
+    private STPParser(InputStream input, STPHandler handler) {
+        this.tokenizer = new STPTokenizer(input);
+        this.handler = handler;
+    }
+
+    /**
+     * Odczytanie pliku STP ze strumienia (strumień jest zamykany).
+     *
+     * @param input     strumień z zawartością pliku
+     * @param handler   odbiorca odczytanych elementów
+     */
+    public static void parse(InputStream input, STPHandler handler) throws IOException {
+        STPParser parser = new STPParser(input, handler);
+        try (STPTokenizer tokenizer = parser.tokenizer) {
+            parser.parseFile();
+        }
+    }
+
+    private void parseFile() throws IOException {
+        if (!tokenizer.nextWord() || !tokenizer.isWord(STP_MAGIC)) {
+            throw new NotConsistentFileException("Wrong file header.");
+        }
+        tokenizer.skipLine();
+
+        while (tokenizer.nextWord()) {
+            if (tokenizer.isWord("EOF")) {
+                return;
+            }
+            if (!tokenizer.isWord("SECTION") || !tokenizer.nextWord()) {
+                throw tokenizer.error("Section expected");
+            }
+            if (tokenizer.isWord("Comment")) {
+                parseComment();
+            } else if (tokenizer.isWord("Graph")) {
+                parseGraph();
+            } else if (tokenizer.isWord("Terminals")) {
+                parseTerminals();
+            } else if (tokenizer.isWord("Solution")) {
+                parseSolution();
+            } else {
+                skipSection();
+            }
+        }
+        throw new NotConsistentFileException("Missing EOF.");
+    }
+
+    private void parseComment() throws IOException {
+        while (nextLineInSection()) {
+            if (tokenizer.isWord("Name")) {
+                handler.name(tokenizer.nextText());
+            }
+            tokenizer.skipLine();
+        }
+    }
+
+    private void parseGraph() throws IOException {
+        while (nextLineInSection()) {
+            if (tokenizer.isWord("E")) {
+                if (!nodesRead || !edgesRead) {
+                    throw new NotConsistentFileException(
+                            "No nodes or edges count information before edge description.");
+                }
+                int node0 = tokenizer.nextInt();
+                int node1 = tokenizer.nextInt();
+                handler.edge(node0, node1, tokenizer.nextInt());
+            } else if (tokenizer.isWord("Nodes")) {
+                if (nodesRead) {
+                    throw new NotConsistentFileException("Second nodes count in Graph section");
+                }
+                nodesRead = true;
+                handler.nodes(tokenizer.nextInt());
+            } else if (tokenizer.isWord("Edges")) {
+                if (edgesRead) {
+                    throw new NotConsistentFileException("Second edges count in Graph section");
+                }
+                edgesRead = true;
+                handler.edges(tokenizer.nextInt());
+            }
+            tokenizer.skipLine();
+        }
+    }
+
+    private void parseTerminals() throws IOException {
+        while (nextLineInSection()) {
+            if (tokenizer.isWord("T")) {
+                if (!terminalsRead) {
+                    throw new NotConsistentFileException(
+                            "No terminal count information before terminal description.");
+                }
+                handler.terminal(tokenizer.nextInt());
+            } else if (tokenizer.isWord("Terminals")) {
+                if (terminalsRead) {
+                    throw new NotConsistentFileException("Second terminal count in Terminals section");
+                }
+                terminalsRead = true;
+                handler.terminals(tokenizer.nextInt());
+            }
+            tokenizer.skipLine();
+        }
+    }
+
+    private void parseSolution() throws IOException {
+        while (nextLineInSection()) {
+            if (tokenizer.isWord("S")) {
+                int node0 = tokenizer.nextInt();
+                int node1 = tokenizer.nextInt();
+                handler.solutionEdge(node0, node1, tokenizer.nextInt());
+            }
+            tokenizer.skipLine();
+        }
+    }
+
+    private void skipSection() throws IOException {
+        while (nextLineInSection()) {
+            tokenizer.skipLine();
+        }
+    }
+
+    /**
+     * Odczytanie pierwszego słowa kolejnej linii sekcji.
+     *
+     * @return  false po odczytaniu końca sekcji
+     */
+    private boolean nextLineInSection() throws IOException {
+        if (!tokenizer.nextWord()) {
+            throw new NotConsistentFileException("Missing line.");
+        }
+        return !tokenizer.isWord(END_SECTION);
+    }
+
+}
@@ -1,105 +1,153 @@
 package pl.edu.pw.elka.gis.steinar.io;
 
-import org.graphstream.graph.Edge;
-import org.graphstream.graph.Node;
+import org.graphstream.graph.Graph;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
 import pl.edu.pw.elka.gis.steinar.model.SolutionMeasurement;
 import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
 
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 
 /**
  * Klasa zapisywania problemów (i ew. rozwiązań) minimalnego drzewa Steinera do plików STP.
+ *
+ * Krawędzie zapisywane są w kolejności indeksów (zgodnej z kolejnością w pliku, z którego graf wczytano),
+ * a terminale rosnąco, więc zapis jest powtarzalny. Dane pobierane są ze zwartej reprezentacji grafu - graf
+ * GraphStream służy jedynie do odczytu identyfikatorów węzłów, jeśli został już zbudowany.
  */
 public class STPSaver {
-    static private final String SECTION_FORMATTER = "SECTION %s";
-    static private final String COMM_NAME_FORMATTER = "Name %s";
-    static private final String GRAPH_NODES_FORMATTER = "Nodes %d";
-    static private final String GRAPH_EDGES_FORMATTER = "Edges %d";
-    static private final String GRAPH_ONE_EDGE_FORMATTER = "E %s %s %d";
-    static private final String TERMINAL_COUNT_FORMATTER = "Terminals %d";
-    static private final String TERMINAL_ONE_FORMATTER = "T %s";
-    static private final String SOLUTION_ONE_FORMATTER = "S %s %s %d";
-
 
+    /**
+     * Zapis całej instancji (nagłówek, sekcje Comment, Graph, Terminals), a przy podanym pomiarze również sekcji
+     * Result i Solution.
+     */
     public static void save(String filename, SteinerGraph steinerGraph, SolutionMeasurement solutionMeasurement)
             throws FileNotFoundException {
-        Collection<Node> nodeSet = steinerGraph.getNodes();
-        HashMap<String, Edge> edgeHashMap = new HashMap<>();
-
-        nodeSet.forEach(node -> {
-            Collection<Edge> edges = node.getEdgeSet();
-            edges.forEach(edge -> edgeHashMap.put(edge.getId(), edge));
-        });
-
-        try {
-            PrintWriter writer = new PrintWriter(filename, "UTF-8");
-            writer.println(STPCommons.STP_HEADER);
-            writer.println();
-
-            //Section Result
+        try (STPWriter writer = open(filename)) {
+            writeHeader(writer);
             if (solutionMeasurement != null) {
-                writer.println(String.format(SECTION_FORMATTER, "Result"));
-                writer.println(String.format("Length %d", solutionMeasurement.getLength()));
-                writer.println(String.format("Time %f", solutionMeasurement.getTime()));
-                writer.println(String.format("Algorithm %s", solutionMeasurement.getAlgorithm().name()));
-                writer.println(STPCommons.END_SECTION);
-                writer.println();
+                writeResult(writer, solutionMeasurement);
             }
-
-            //Section Comment
-            writer.println(String.format(SECTION_FORMATTER, "Comment"));
-            writer.println(String.format(COMM_NAME_FORMATTER, "\"" + steinerGraph.getName()) + "\"");
-            writer.println(STPCommons.END_SECTION);
-            writer.println();
-
-            //Section Graph
-            writer.println(String.format(SECTION_FORMATTER, "Graph"));
-            writer.println(String.format(GRAPH_NODES_FORMATTER, nodeSet.size()));
-            writer.println(String.format(GRAPH_EDGES_FORMATTER, edgeHashMap.size()));
-            edgeHashMap.forEach((s, edge) ->
-                    writer.println(String.format(GRAPH_ONE_EDGE_FORMATTER, edge.getNode0().getId(), edge.getNode1().getId(), edge.getAttribute(SteinerGraph.WEIGHT_ATTR, Integer.class)))
-            );
-            writer.println(STPCommons.END_SECTION);
-            writer.println();
-
-            //Section Terminals
-            List<Node> terminalList = nodeSet.stream()
-                    .filter(node -> node.getAttribute(SteinerGraph.TERMINAL_ATTR, Boolean.class))
-                    .collect(Collectors.toList());
-
-            writer.println(String.format(SECTION_FORMATTER, "Terminals"));
-            writer.println(String.format(TERMINAL_COUNT_FORMATTER, terminalList.size()));
-            terminalList.forEach(node ->
-                    writer.println(String.format(TERMINAL_ONE_FORMATTER, node.getId()))
-            );
-            writer.println(STPCommons.END_SECTION);
-            writer.println();
-
-            //Section Terminals
+            writeComment(writer, steinerGraph);
+            writeGraph(writer, steinerGraph);
+            writeTerminals(writer, steinerGraph);
             if (solutionMeasurement != null) {
-                List<Edge> resultList = steinerGraph.getResultTreeEdges();
-                writer.println(String.format(SECTION_FORMATTER, "Solution"));
-                resultList.forEach(edge -> writer.println(String.format(SOLUTION_ONE_FORMATTER, edge.getNode0().getId(), edge.getNode1().getId(), edge.getAttribute(SteinerGraph.WEIGHT_ATTR, Integer.class))));
-                writer.println(STPCommons.END_SECTION);
-                writer.println();
+                writeSolution(writer, steinerGraph);
             }
+            writer.write("EOF").newLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write file " + filename, ex);
+        }
+
+        System.out.println(String.format("Graph %s saved to file %s", steinerGraph.getName(), filename));
+    }
 
-            writer.println("EOF");
+    /**
+     * Zapis samego rozwiązania (sekcje Result i Solution) - bez ponownego zapisu grafu.
+     */
+    public static void saveSolution(String filename, SteinerGraph steinerGraph,
+                                    SolutionMeasurement solutionMeasurement) throws FileNotFoundException {
+        try (STPWriter writer = open(filename)) {
+            writeHeader(writer);
+            writeResult(writer, solutionMeasurement);
+            writeSolution(writer, steinerGraph);
+            writer.write("EOF").newLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write file " + filename, ex);
+        }
 
-            writer.close();
+        System.out.println(String.format("Solution for graph %s saved to file %s", steinerGraph.getName(), filename));
+    }
 
-            System.out.println(String.format("Graph %s saved to file %s", steinerGraph.getName(), filename));
-        } catch (FileNotFoundException e) {
+    private static STPWriter open(String filename) throws FileNotFoundException {
+        try {
+            return new STPWriter(Files.newOutputStream(Paths.get(filename)));
+        } catch (NoSuchFileException ex) {
             throw new FileNotFoundException(filename);
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open file " + filename, ex);
+        }
+    }
+
+    private static void writeHeader(STPWriter writer) throws IOException {
+        writer.write(STPCommons.STP_HEADER).newLine().newLine();
+    }
+
+    private static void writeResult(STPWriter writer, SolutionMeasurement measurement) throws IOException {
+        startSection(writer, "Result");
+        writer.write("Length ").write(measurement.getLength()).newLine();
+        writer.write(String.format("Time %f", measurement.getTime())).newLine();
+        writer.write("Algorithm ").write(measurement.getAlgorithm().name()).newLine();
+        if (measurement.getLowerBound() != null) {
+            writer.write("LowerBound ").write(measurement.getLowerBound()).newLine();
+            writer.write(String.format("Gap %f", measurement.getGap())).newLine();
+        }
+        endSection(writer);
+    }
+
+    private static void writeComment(STPWriter writer, SteinerGraph steinerGraph) throws IOException {
+        startSection(writer, "Comment");
+        writer.write("Name \"").write(String.valueOf(steinerGraph.getName())).write("\"").newLine();
+        endSection(writer);
+    }
+
+    private static void writeGraph(STPWriter writer, SteinerGraph steinerGraph) throws IOException {
+        CompactGraph compact = steinerGraph.getCompactGraph();
+        Graph graph = steinerGraph.isGraphBuilt() ? steinerGraph.getGraph() : null;
+        startSection(writer, "Graph");
+        writer.write("Nodes ").write(compact.getNodeCount()).newLine();
+        writer.write("Edges ").write(compact.getEdgeCount()).newLine();
+        for (int edge = 0; edge < compact.getEdgeCount(); ++edge) {
+            writeEdge(writer.write("E "), compact, graph, edge);
+        }
+        endSection(writer);
+    }
+
+    private static void writeTerminals(STPWriter writer, SteinerGraph steinerGraph) throws IOException {
+        int[] terminals = steinerGraph.getTerminalIndices();
+        Graph graph = steinerGraph.isGraphBuilt() ? steinerGraph.getGraph() : null;
+        startSection(writer, "Terminals");
+        writer.write("Terminals ").write(terminals.length).newLine();
+        for (int terminal : terminals) {
+            writeNodeId(writer.write("T "), graph, terminal).newLine();
+        }
+        endSection(writer);
+    }
+
+    private static void writeSolution(STPWriter writer, SteinerGraph steinerGraph) throws IOException {
+        CompactGraph compact = steinerGraph.getCompactGraph();
+        Graph graph = steinerGraph.isGraphBuilt() ? steinerGraph.getGraph() : null;
+        startSection(writer, "Solution");
+        for (int edge : steinerGraph.getResultTreeEdgeIndices()) {
+            writeEdge(writer.write("S "), compact, graph, edge);
         }
+        endSection(writer);
+    }
+
+    private static void writeEdge(STPWriter writer, CompactGraph compact, Graph graph, int edge) throws IOException {
+        writeNodeId(writer, graph, compact.getEdgeNode0(edge)).space();
+        writeNodeId(writer, graph, compact.getEdgeNode1(edge)).space();
+        writer.write(compact.getEdgeWeight(edge)).newLine();
+    }
+
+    /**
+     * Identyfikator węzła - z grafu GraphStream, jeśli istnieje, a w przeciwnym razie numer węzła z pliku
+     * (indeks + 1, zob. {@link SteinerGraph#SteinerGraph(String, CompactGraph, java.util.BitSet)}).
+     */
+    private static STPWriter writeNodeId(STPWriter writer, Graph graph, int node) throws IOException {
+        return graph != null ? writer.write(graph.getNode(node).getId()) : writer.write(node + 1);
+    }
+
+    private static void startSection(STPWriter writer, String name) throws IOException {
+        writer.write("SECTION ").write(name).newLine();
+    }
+
+    private static void endSection(STPWriter writer) throws IOException {
+        writer.write(STPCommons.END_SECTION).newLine().newLine();
     }
 
 }
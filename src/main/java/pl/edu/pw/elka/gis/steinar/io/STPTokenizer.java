@@ -0,0 +1,174 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import pl.edu.pw.elka.gis.steinar.io.exceptions.NotConsistentFileException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Podział pliku STP na słowa i liczby wykonywany bezpośrednio na bajtach strumienia (czytanego dużymi blokami
+ * do własnego bufora) - bez klasy Scanner, wyrażeń regularnych i tworzenia obiektów dla liczb.
+ *
+ * Słowa kluczowe porównywane są bez rozróżniania wielkości liter (zgodnie z formatem STP), a znaki '\r' traktowane
+ * są jak odstępy, więc obsługiwane są również pliki z końcami linii CRLF.
+ */
+class STPTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int lineNumber = 1;
+
+    // Ostatnio odczytane słowo (dłuższe słowa są obcinane - nie są słowami kluczowymi):
+    private final byte[] word = new byte[MAX_WORD_LENGTH];
+    private int wordLength;
+
+    STPTokenizer(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Odczytanie kolejnego słowa (ciągu znaków niebędących odstępami), z pominięciem odstępów i końców linii.
+     *
+     * @return  false, jeśli strumień się skończył
+     */
+    boolean nextWord() throws IOException {
+        int c = skipWhitespace(true);
+        if (c < 0) {
+            return false;
+        }
+        wordLength = 0;
+        while (c >= 0 && !isWhitespace(c)) {
+            if (wordLength < MAX_WORD_LENGTH) {
+                word[wordLength++] = (byte) c;
+            }
+            ++position;
+            c = peek();
+        }
+        return true;
+    }
+
+    /**
+     * Czy ostatnio odczytane słowo jest równe słowu kluczowemu (bez rozróżniania wielkości liter).
+     */
+    boolean isWord(String keyword) {
+        if (keyword.length() != wordLength) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; ++i) {
+            if (Character.toLowerCase((char) word[i]) != Character.toLowerCase(keyword.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String getWord() {
+        return new String(word, 0, wordLength, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Odczytanie nieujemnej liczby całkowitej z bieżącej linii.
+     */
+    int nextInt() throws IOException {
+        int c = skipWhitespace(false);
+        if (c < '0' || c > '9') {
+            throw error("Integer expected");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = 10 * value + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error("Integer out of range");
+            }
+            ++position;
+            c = peek();
+        }
+        return (int) value;
+    }
+
+    /**
+     * Odczytanie napisu z bieżącej linii - w cudzysłowach (zwracany bez nich) albo, przy braku cudzysłowu,
+     * do końca linii.
+     */
+    String nextText() throws IOException {
+        int c = skipWhitespace(false);
+        boolean quoted = c == '"';
+        if (quoted) {
+            ++position;
+        }
+        StringBuilder text = new StringBuilder();
+        while ((c = peek()) >= 0 && c != '\n' && !(quoted && c == '"')) {
+            text.append((char) c);
+            ++position;
+        }
+        if (quoted) {
+            if (c != '"') {
+                throw error("Unterminated string");
+            }
+            ++position;
+            return text.toString();
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Pominięcie reszty bieżącej linii.
+     */
+    void skipLine() throws IOException {
+        int c;
+        while ((c = peek()) >= 0) {
+            ++position;
+            if (c == '\n') {
+                ++lineNumber;
+                return;
+            }
+        }
+    }
+
+    NotConsistentFileException error(String reason) {
+        return new NotConsistentFileException(reason + " (line " + lineNumber + ").");
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private int skipWhitespace(boolean skipNewLines) throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && isWhitespace(c)) {
+            if (c == '\n') {
+                if (!skipNewLines) {
+                    return c;
+                }
+                ++lineNumber;
+            }
+            ++position;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = input.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+}
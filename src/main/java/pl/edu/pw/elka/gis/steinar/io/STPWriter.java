@@ -0,0 +1,113 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Zapis tekstu pliku STP przez duży bufor bajtowy - liczby całkowite formatowane są bezpośrednio do bufora,
+ * bez tworzenia napisów (odpowiednik {@link STPTokenizer} dla zapisu).
+ */
+class STPWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Najdłuższa liczba typu int ("-2147483648"):
+    private static final int MAX_INT_LENGTH = 11;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    STPWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    STPWriter write(String text) throws IOException {
+        for (int i = 0; i < text.length(); ++i) {
+            if (text.charAt(i) >= 0x80) {
+                return write(text.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        for (int i = 0; i < text.length(); ++i) {
+            if (position == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    STPWriter write(int value) throws IOException {
+        if (BUFFER_SIZE - position < MAX_INT_LENGTH) {
+            flushBuffer();
+        }
+        if (value == Integer.MIN_VALUE) {
+            return write(Integer.toString(value));
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + getDigitCount(value);
+        for (int i = end - 1; i >= position; --i) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+        return this;
+    }
+
+    STPWriter space() throws IOException {
+        return writeByte(' ');
+    }
+
+    STPWriter newLine() throws IOException {
+        return writeByte('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            output.close();
+        }
+    }
+
+    private STPWriter write(byte[] bytes) throws IOException {
+        if (bytes.length > BUFFER_SIZE - position) {
+            flushBuffer();
+        }
+        if (bytes.length > BUFFER_SIZE) {
+            output.write(bytes);
+        } else {
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+        return this;
+    }
+
+    private STPWriter writeByte(char c) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    private void flushBuffer() throws IOException {
+        output.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private static int getDigitCount(int value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            ++count;
+        }
+        return count;
+    }
+
+}
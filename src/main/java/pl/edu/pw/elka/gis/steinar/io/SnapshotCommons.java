@@ -0,0 +1,49 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import java.nio.ByteOrder;
+
+/**
+ * Stałe binarnego formatu migawki grafu (zapisywanego przez {@link SnapshotSaver}, odczytywanego przez
+ * {@link SnapshotLoader}).
+ *
+ * Układ pliku (liczby całkowite w kolejności little-endian):
+ * <pre>
+ * int      MAGIC, VERSION, nodeCount, edgeCount, terminalCount, nameLength
+ * byte[]   nazwa grafu (UTF-8), dopełniona zerami do wielokrotności 8 bajtów
+ * long[]   mapa bitowa terminali ((nodeCount + 63) / 64 słów, jak w {@link java.util.BitSet#toLongArray()})
+ * int[]    edgeNode0, edgeNode1, edgeWeight    (po edgeCount elementów)
+ * int[]    offsets                             (nodeCount + 1 elementów)
+ * int[]    targets, weights, edgeIds           (po 2 * edgeCount elementów)
+ * </pre>
+ * Nazwa o długości -1 oznacza graf bez nazwy. Zmiana układu wymaga zwiększenia numeru wersji.
+ */
+public class SnapshotCommons {
+    // "STPB" zapisane jako liczba little-endian:
+    static public final int MAGIC = 0x42505453;
+    static public final int VERSION = 1;
+    static public final int HEADER_INTS = 6;
+    static public final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static public final String SNAPSHOT_EXTENSION = ".stpb";
+
+    static int getBitmapWords(int nodeCount) {
+        return (nodeCount + 63) / 64;
+    }
+
+    static long getPaddedLength(int length) {
+        return (length + 7L) & ~7L;
+    }
+
+    /**
+     * Rozmiar pliku migawki (w bajtach) dla podanych wartości nagłówka - liczony na liczbach typu long, aby
+     * błędny nagłówek nie powodował przepełnienia.
+     */
+    static long getFileSize(int nodeCount, int edgeCount, int nameLength) {
+        long size = (long) HEADER_INTS * Integer.BYTES;
+        if (nameLength >= 0) {
+            size += getPaddedLength(nameLength);
+        }
+        size += (long) getBitmapWords(nodeCount) * Long.BYTES;
+        size += (9L * edgeCount + nodeCount + 1) * Integer.BYTES;
+        return size;
+    }
+}
@@ -0,0 +1,118 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import lombok.Getter;
+import pl.edu.pw.elka.gis.steinar.io.exceptions.NotConsistentFileException;
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Klasa odczytywania grafów Steinera z binarnego formatu migawki ({@link SnapshotCommons}).
+ *
+ * Plik jest mapowany do pamięci, a tablice zwartej reprezentacji grafu kopiowane są z niego blokowo - bez
+ * parsowania tekstu i ponownego budowania list sąsiedztwa, więc czas odczytu ograniczają praktycznie tylko
+ * odwołania do stron pliku. Graf GraphStream powstaje leniwie (zob. {@link SteinerGraph#getGraph()}).
+ */
+public class SnapshotLoader {
+
+    @Getter
+    private final SteinerGraph resultGraph;
+
+    public SnapshotLoader(String filename) throws FileNotFoundException {
+        this(Paths.get(filename));
+    }
+
+    public SnapshotLoader(Path path) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(SnapshotCommons.BYTE_ORDER);
+            resultGraph = load(buffer);
+        } catch (NoSuchFileException ex) {
+            throw new FileNotFoundException(path.toString());
+        } catch (BufferUnderflowException ex) {
+            throw new NotConsistentFileException("Snapshot file " + path + " is truncated.");
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read snapshot file " + path, ex);
+        }
+
+        System.out.println(String.format("Graph %s loaded correctly.", resultGraph.getName()));
+    }
+
+    private static SteinerGraph load(ByteBuffer buffer) {
+        if (buffer.remaining() < SnapshotCommons.HEADER_INTS * Integer.BYTES
+                || buffer.getInt() != SnapshotCommons.MAGIC) {
+            throw new NotConsistentFileException("Not a graph snapshot file.");
+        }
+        int version = buffer.getInt();
+        if (version != SnapshotCommons.VERSION) {
+            throw new NotConsistentFileException("Unsupported snapshot version " + version + ".");
+        }
+        int nodeCount = buffer.getInt();
+        int edgeCount = buffer.getInt();
+        int terminalCount = buffer.getInt();
+        int nameLength = buffer.getInt();
+        if (nodeCount < 0 || nodeCount == Integer.MAX_VALUE || edgeCount < 0 || edgeCount > Integer.MAX_VALUE / 2
+                || terminalCount < 0 || terminalCount > nodeCount || nameLength < -1) {
+            throw new NotConsistentFileException("Wrong snapshot header.");
+        }
+        // Rozmiar pliku wynikający z nagłówka sprawdzany jest przed utworzeniem jakichkolwiek tablic:
+        if (buffer.capacity() != SnapshotCommons.getFileSize(nodeCount, edgeCount, nameLength)) {
+            throw new NotConsistentFileException("Snapshot file size does not match its header.");
+        }
+
+        String name = null;
+        if (nameLength >= 0) {
+            byte[] bytes = new byte[nameLength];
+            buffer.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + (int) SnapshotCommons.getPaddedLength(nameLength) - nameLength);
+        }
+
+        long[] bitmap = new long[SnapshotCommons.getBitmapWords(nodeCount)];
+        buffer.asLongBuffer().get(bitmap);
+        buffer.position(buffer.position() + bitmap.length * Long.BYTES);
+        BitSet terminals = BitSet.valueOf(bitmap);
+        if (terminals.cardinality() != terminalCount || terminals.length() > nodeCount) {
+            throw new NotConsistentFileException("Wrong terminal bitmap in snapshot.");
+        }
+
+        IntBuffer ints = buffer.asIntBuffer();
+        int[] edgeNode0 = getInts(ints, edgeCount);
+        int[] edgeNode1 = getInts(ints, edgeCount);
+        int[] edgeWeight = getInts(ints, edgeCount);
+        int[] offsets = getInts(ints, nodeCount + 1);
+        int[] targets = getInts(ints, 2 * edgeCount);
+        int[] weights = getInts(ints, 2 * edgeCount);
+        int[] edgeIds = getInts(ints, 2 * edgeCount);
+
+        CompactGraph graph;
+        try {
+            graph = CompactGraph.fromArrays(nodeCount, edgeNode0, edgeNode1, edgeWeight,
+                    offsets, targets, weights, edgeIds);
+        } catch (IllegalArgumentException ex) {
+            throw new NotConsistentFileException(ex.getMessage());
+        }
+        return new SteinerGraph(name, graph, terminals);
+    }
+
+    private static int[] getInts(IntBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.get(values);
+        return values;
+    }
+
+}
@@ -0,0 +1,153 @@
+package pl.edu.pw.elka.gis.steinar.io;
+
+import pl.edu.pw.elka.gis.steinar.model.CompactGraph;
+import pl.edu.pw.elka.gis.steinar.model.SteinerGraph;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Klasa zapisywania grafów Steinera do binarnego formatu migawki ({@link SnapshotCommons}) - zwartej reprezentacji
+ * grafu wraz z terminalami, którą {@link SnapshotLoader} odczytuje bez parsowania tekstu i budowania list
+ * sąsiedztwa.
+ */
+public class SnapshotSaver {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    public static void save(Path path, SteinerGraph steinerGraph) {
+        CompactGraph graph = steinerGraph.getCompactGraph();
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+        int[] terminals = steinerGraph.getTerminalIndices();
+        byte[] name = steinerGraph.getName() != null ? steinerGraph.getName().getBytes(StandardCharsets.UTF_8) : null;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(SnapshotCommons.BYTE_ORDER);
+            Output output = new Output(channel, buffer);
+
+            output.putInt(SnapshotCommons.MAGIC);
+            output.putInt(SnapshotCommons.VERSION);
+            output.putInt(nodeCount);
+            output.putInt(edgeCount);
+            output.putInt(terminals.length);
+            output.putInt(name != null ? name.length : -1);
+            if (name != null) {
+                for (byte b : name) {
+                    output.putByte(b);
+                }
+                for (long i = name.length; i < SnapshotCommons.getPaddedLength(name.length); ++i) {
+                    output.putByte((byte) 0);
+                }
+            }
+
+            BitSet terminalSet = new BitSet(nodeCount);
+            for (int terminal : terminals) {
+                terminalSet.set(terminal);
+            }
+            long[] bitmap = terminalSet.toLongArray();
+            for (int i = 0; i < SnapshotCommons.getBitmapWords(nodeCount); ++i) {
+                output.putLong(i < bitmap.length ? bitmap[i] : 0L);
+            }
+
+            for (int e = 0; e < edgeCount; ++e) {
+                output.putInt(graph.getEdgeNode0(e));
+            }
+            for (int e = 0; e < edgeCount; ++e) {
+                output.putInt(graph.getEdgeNode1(e));
+            }
+            for (int e = 0; e < edgeCount; ++e) {
+                output.putInt(graph.getEdgeWeight(e));
+            }
+            for (int node = 0; node < nodeCount; ++node) {
+                output.putInt(graph.getFirstArc(node));
+            }
+            output.putInt(2 * edgeCount);
+            output.putInts(graph.getTargets());
+            output.putInts(graph.getWeights());
+            output.putInts(graph.getEdgeIds());
+            output.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write snapshot file " + path, ex);
+        }
+
+        System.out.println(String.format("Graph %s saved to file %s", steinerGraph.getName(), path));
+    }
+
+    /**
+     * Konwersja pliku STP (także skompresowanego) do formatu migawki.
+     *
+     * @param stpFilename       nazwa zasobu lub ścieżka pliku STP
+     * @param snapshotPath      ścieżka tworzonego pliku migawki
+     */
+    public static void convert(String stpFilename, Path snapshotPath) throws FileNotFoundException {
+        save(snapshotPath, new STPLoader(stpFilename).getResultGraph());
+    }
+
+    public static void convert(String stpFilename, String snapshotFilename) throws FileNotFoundException {
+        convert(stpFilename, Paths.get(snapshotFilename));
+    }
+
+    /**
+     * Zapis przez bufor bezpośredni opróżniany do kanału po zapełnieniu.
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        Output(FileChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        void putByte(byte value) throws IOException {
+            ensureRemaining(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putInts(int[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensureRemaining(Integer.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                offset += count;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+}
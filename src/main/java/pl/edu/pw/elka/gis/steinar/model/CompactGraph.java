@@ -0,0 +1,286 @@
+package pl.edu.pw.elka.gis.steinar.model;
+
+import lombok.Getter;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Graph;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Zwarta (CSR - compressed sparse row) reprezentacja nieskierowanego grafu ważonego, na której pracują algorytmy.
+ *
+ * Węzły i krawędzie identyfikowane są gęstymi indeksami zgodnymi z indeksami obiektów GraphStream
+ * ({@link org.graphstream.graph.Node#getIndex()}, {@link Edge#getIndex()}), dzięki czemu wynik algorytmu
+ * (tablica indeksów krawędzi) można na końcu odwzorować z powrotem na obiekty {@link Edge}.
+ * Każda krawędź występuje na listach sąsiedztwa obu swoich końców. Obiekty tej klasy są niezmienne - jedynie
+ * dane pomocnicze algorytmów zależne tylko od grafu (np. punkty orientacyjne) zapamiętywane są leniwie
+ * ({@link #getCached(Object, Function)}).
+ */
+public class CompactGraph {
+
+    @Getter
+    private final int nodeCount;
+    @Getter
+    private final int edgeCount;
+    @Getter
+    private final int maxWeight;
+
+    // Wierzchołki i wagi krawędzi (indeksowane numerem krawędzi):
+    private final int[] edgeNode0;
+    private final int[] edgeNode1;
+    private final int[] edgeWeight;
+
+    // Listy sąsiedztwa (wpisy węzła v zajmują przedział [offsets[v], offsets[v+1])):
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] edgeIds;
+
+    // Dane pomocnicze algorytmów wyznaczane raz dla grafu:
+    private final ConcurrentMap<Object, Object> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Budowa grafu z listy krawędzi.
+     *
+     * @param nodeCount     liczba węzłów
+     * @param edgeNode0     indeksy pierwszych końców krawędzi
+     * @param edgeNode1     indeksy drugich końców krawędzi
+     * @param edgeWeight    wagi krawędzi
+     */
+    public CompactGraph(int nodeCount, int[] edgeNode0, int[] edgeNode1, int[] edgeWeight) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeWeight.length;
+        this.edgeNode0 = edgeNode0;
+        this.edgeNode1 = edgeNode1;
+        this.edgeWeight = edgeWeight;
+
+        this.offsets = new int[nodeCount + 1];
+        this.targets = new int[2 * edgeCount];
+        this.weights = new int[2 * edgeCount];
+        this.edgeIds = new int[2 * edgeCount];
+
+        int max = 0;
+        for (int e = 0; e < edgeCount; ++e) {
+            offsets[edgeNode0[e] + 1]++;
+            offsets[edgeNode1[e] + 1]++;
+            max = Math.max(max, edgeWeight[e]);
+        }
+        this.maxWeight = max;
+
+        for (int v = 0; v < nodeCount; ++v) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] position = new int[nodeCount];
+        System.arraycopy(offsets, 0, position, 0, nodeCount);
+        for (int e = 0; e < edgeCount; ++e) {
+            int u = edgeNode0[e], v = edgeNode1[e], w = edgeWeight[e];
+            int i = position[u]++;
+            targets[i] = v;
+            weights[i] = w;
+            edgeIds[i] = e;
+            i = position[v]++;
+            targets[i] = u;
+            weights[i] = w;
+            edgeIds[i] = e;
+        }
+    }
+
+    private CompactGraph(int nodeCount, int[] edgeNode0, int[] edgeNode1, int[] edgeWeight,
+                         int[] offsets, int[] targets, int[] weights, int[] edgeIds) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeWeight.length;
+        this.edgeNode0 = edgeNode0;
+        this.edgeNode1 = edgeNode1;
+        this.edgeWeight = edgeWeight;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeIds = edgeIds;
+
+        int max = 0;
+        for (int weight : edgeWeight) {
+            max = Math.max(max, weight);
+        }
+        this.maxWeight = max;
+    }
+
+    /**
+     * Odtworzenie grafu z gotowych tablic listy krawędzi i list sąsiedztwa (np. odczytanych z pliku), bez ponownego
+     * budowania list sąsiedztwa. Tablice nie są kopiowane, lecz sprawdzana jest (w czasie O(n + m)) ich
+     * spójność: rozmiary, monotoniczność list sąsiedztwa, zakresy indeksów i wag oraz zgodność każdego łuku
+     * z krawędzią (każda krawędź występuje dokładnie raz na liście każdego ze swoich końców).
+     *
+     * @param nodeCount     liczba węzłów
+     * @param edgeNode0     indeksy pierwszych końców krawędzi
+     * @param edgeNode1     indeksy drugich końców krawędzi
+     * @param edgeWeight    wagi krawędzi
+     * @param offsets       początki list sąsiedztwa węzłów (nodeCount + 1 elementów)
+     * @param targets       sąsiedzi (2 * liczba krawędzi elementów)
+     * @param weights       wagi łuków list sąsiedztwa
+     * @param edgeIds       indeksy krawędzi łuków list sąsiedztwa
+     * @return              graf w postaci zwartej
+     */
+    public static CompactGraph fromArrays(int nodeCount, int[] edgeNode0, int[] edgeNode1, int[] edgeWeight,
+                                          int[] offsets, int[] targets, int[] weights, int[] edgeIds) {
+        int edgeCount = edgeWeight.length;
+        if (edgeNode0.length != edgeCount || edgeNode1.length != edgeCount || offsets.length != nodeCount + 1
+                || offsets[0] != 0 || offsets[nodeCount] != 2 * edgeCount || targets.length != 2 * edgeCount
+                || weights.length != 2 * edgeCount || edgeIds.length != 2 * edgeCount) {
+            throw new IllegalArgumentException("Inconsistent compact graph array sizes.");
+        }
+        for (int e = 0; e < edgeCount; ++e) {
+            if (edgeNode0[e] < 0 || edgeNode0[e] >= nodeCount || edgeNode1[e] < 0 || edgeNode1[e] >= nodeCount
+                    || edgeWeight[e] < 0) {
+                throw new IllegalArgumentException("Edge " + e + " has wrong end node or weight.");
+            }
+        }
+        for (int v = 0; v < nodeCount; ++v) {
+            if (offsets[v + 1] < offsets[v]) {
+                throw new IllegalArgumentException("Adjacency offsets of node " + v + " are decreasing.");
+            }
+        }
+        // Łuki znalezione na listach pierwszego i drugiego końca krawędzi:
+        boolean[] arcAtNode0 = new boolean[edgeCount];
+        boolean[] arcAtNode1 = new boolean[edgeCount];
+        for (int v = 0; v < nodeCount; ++v) {
+            for (int i = offsets[v]; i < offsets[v + 1]; ++i) {
+                int e = edgeIds[i];
+                if (e < 0 || e >= edgeCount || weights[i] != edgeWeight[e]) {
+                    throw new IllegalArgumentException("Wrong edge id or weight of arc " + i + ".");
+                }
+                if (v == edgeNode0[e] && targets[i] == edgeNode1[e] && !arcAtNode0[e]) {
+                    arcAtNode0[e] = true;
+                } else if (v == edgeNode1[e] && targets[i] == edgeNode0[e] && !arcAtNode1[e]) {
+                    arcAtNode1[e] = true;
+                } else {
+                    throw new IllegalArgumentException("Arc " + i + " does not match edge " + e + ".");
+                }
+            }
+        }
+        return new CompactGraph(nodeCount, edgeNode0, edgeNode1, edgeWeight, offsets, targets, weights, edgeIds);
+    }
+
+    /**
+     * Budowa zwartej reprezentacji grafu GraphStream. Wagi krawędzi odczytywane są jednokrotnie z atrybutu
+     * o podanej nazwie (brak atrybutu oznacza wagę 0).
+     *
+     * @param graph             graf GraphStream
+     * @param weightAttribute   nazwa atrybutu wagi krawędzi
+     * @return                  zwarta reprezentacja grafu
+     */
+    public static CompactGraph fromGraph(Graph graph, String weightAttribute) {
+        int edgeCount = graph.getEdgeCount();
+        int[] edgeNode0 = new int[edgeCount];
+        int[] edgeNode1 = new int[edgeCount];
+        int[] edgeWeight = new int[edgeCount];
+
+        for (int e = 0; e < edgeCount; ++e) {
+            Edge edge = graph.getEdge(e);
+            edgeNode0[e] = edge.getNode0().getIndex();
+            edgeNode1[e] = edge.getNode1().getIndex();
+            Number weight = edge.getAttribute(weightAttribute);
+            edgeWeight[e] = weight == null ? 0 : weight.intValue();
+        }
+
+        return new CompactGraph(graph.getNodeCount(), edgeNode0, edgeNode1, edgeWeight);
+    }
+
+    public int getDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * Początek listy sąsiedztwa węzła (indeks w tablicach {@link #getTargets()}, {@link #getWeights()},
+     * {@link #getEdgeIds()}).
+     */
+    public int getFirstArc(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * Koniec (wyłączny) listy sąsiedztwa węzła.
+     */
+    public int getEndArc(int node) {
+        return offsets[node + 1];
+    }
+
+    public int getEdgeNode0(int edge) {
+        return edgeNode0[edge];
+    }
+
+    public int getEdgeNode1(int edge) {
+        return edgeNode1[edge];
+    }
+
+    public int getEdgeWeight(int edge) {
+        return edgeWeight[edge];
+    }
+
+    public int getOpposite(int edge, int node) {
+        return edgeNode0[edge] == node ? edgeNode1[edge] : edgeNode0[edge];
+    }
+
+    /**
+     * Tablice list sąsiedztwa udostępniane bezpośrednio (bez kopiowania) na potrzeby pętli algorytmów.
+     * Nie wolno ich modyfikować.
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    public int[] getWeights() {
+        return weights;
+    }
+
+    public int[] getEdgeIds() {
+        return edgeIds;
+    }
+
+    /**
+     * Zwraca dane pomocnicze grafu zapamiętane pod podanym kluczem, wyznaczając je przy pierwszym użyciu.
+     * Metoda jest bezpieczna wątkowo - dane dla klucza tworzone są jednokrotnie.
+     *
+     * @param key       klucz danych
+     * @param factory   funkcja wyznaczająca dane dla grafu
+     * @return          dane pomocnicze
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getCached(Object key, Function<CompactGraph, T> factory) {
+        return (T) cache.computeIfAbsent(key, k -> factory.apply(this));
+    }
+
+    /**
+     * Wyszukanie krawędzi łączącej dwa węzły - przegląd listy sąsiedztwa węzła o mniejszym stopniu.
+     *
+     * @return  indeks krawędzi lub -1, jeśli węzły nie są sąsiadami
+     */
+    public int findEdge(int node0, int node1) {
+        int from = getDegree(node0) <= getDegree(node1) ? node0 : node1;
+        int to = from == node0 ? node1 : node0;
+        for (int i = offsets[from], end = offsets[from + 1]; i < end; ++i) {
+            if (targets[i] == to) {
+                return edgeIds[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Suma wag podanych krawędzi.
+     *
+     * @param edges tablica indeksów krawędzi
+     * @param count liczba branych pod uwagę elementów tablicy
+     * @return      łączna waga
+     */
+    public int getTotalWeight(int[] edges, int count) {
+        int weight = 0;
+        for (int i = 0; i < count; ++i) {
+            weight += edgeWeight[edges[i]];
+        }
+        return weight;
+    }
+
+}
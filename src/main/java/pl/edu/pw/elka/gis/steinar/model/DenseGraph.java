@@ -0,0 +1,76 @@
+package pl.edu.pw.elka.gis.steinar.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Gęsta reprezentacja nieskierowanego grafu ważonego - płaska macierz wag i indeksów krawędzi o rozmiarze n x n.
+ *
+ * Przeznaczona dla grafów pełnych i bliskich pełnym, na których algorytmy przeglądające wiersze macierzy
+ * (O(n^2), bez kolejki priorytetowej) są szybsze od wersji opartych na listach sąsiedztwa i kopcach. Między parą
+ * węzłów pamiętana jest jedynie najlżejsza krawędź; indeksy krawędzi są zgodne z grafem, z którego zbudowano
+ * macierz. Obiekty tej klasy są niezmienne.
+ */
+public class DenseGraph {
+
+    /**
+     * Waga oznaczająca brak krawędzi między parą węzłów.
+     */
+    public static final int NO_EDGE = Integer.MAX_VALUE;
+    /**
+     * Gęstość (stosunek liczby krawędzi do n(n-1)/2), od której wybierana jest reprezentacja gęsta.
+     */
+    public static final double DENSITY_THRESHOLD = 0.5;
+
+    @Getter
+    private final int nodeCount;
+    // Wiersz u macierzy zajmuje przedział [u * nodeCount, (u + 1) * nodeCount):
+    private final int[] weights;
+    private final int[] edges;
+
+    public DenseGraph(CompactGraph graph) {
+        this.nodeCount = graph.getNodeCount();
+        this.weights = new int[nodeCount * nodeCount];
+        this.edges = new int[nodeCount * nodeCount];
+        Arrays.fill(weights, NO_EDGE);
+        Arrays.fill(edges, -1);
+
+        for (int e = 0; e < graph.getEdgeCount(); ++e) {
+            int u = graph.getEdgeNode0(e), v = graph.getEdgeNode1(e), w = graph.getEdgeWeight(e);
+            if (u != v && w < weights[u * nodeCount + v]) {
+                weights[u * nodeCount + v] = weights[v * nodeCount + u] = w;
+                edges[u * nodeCount + v] = edges[v * nodeCount + u] = e;
+            }
+        }
+    }
+
+    /**
+     * Czy graf jest na tyle gęsty, że należy użyć reprezentacji macierzowej.
+     */
+    public static boolean isDense(CompactGraph graph) {
+        long n = graph.getNodeCount();
+        return n > 2 && graph.getEdgeCount() >= DENSITY_THRESHOLD * n * (n - 1) / 2;
+    }
+
+    public int getWeight(int u, int v) {
+        return weights[u * nodeCount + v];
+    }
+
+    public int getEdge(int u, int v) {
+        return edges[u * nodeCount + v];
+    }
+
+    /**
+     * Macierze wag i indeksów krawędzi udostępniane bezpośrednio (bez kopiowania) na potrzeby pętli algorytmów.
+     * Nie wolno ich modyfikować.
+     */
+    public int[] getWeights() {
+        return weights;
+    }
+
+    public int[] getEdges() {
+        return edges;
+    }
+
+}
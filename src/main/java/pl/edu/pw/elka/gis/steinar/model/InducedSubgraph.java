@@ -0,0 +1,161 @@
+package pl.edu.pw.elka.gis.steinar.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Podgraf indukowany grafu {@link CompactGraph} zadany maską węzłów - widok na tablice grafu bez ich kopiowania.
+ *
+ * Węzły i krawędzie zachowują indeksy grafu bazowego. Łuk z listy sąsiedztwa węzła podgrafu należy do podgrafu,
+ * jeśli jego drugi koniec należy do podgrafu, więc przegląd sąsiadów kosztuje O(stopień węzła), a dodanie
+ * i usunięcie węzła - O(1). Widok można przekazać algorytmom przyjmującym maskę węzłów
+ * ({@link #getNodeMask()}).
+ */
+public class InducedSubgraph {
+
+    @Getter
+    private final CompactGraph graph;
+    private final boolean[] nodeMask;
+    /**
+     * Liczba węzłów podgrafu.
+     */
+    @Getter
+    private int nodeCount;
+
+    /**
+     * Podgraf pusty.
+     */
+    public InducedSubgraph(CompactGraph graph) {
+        this(graph, new boolean[graph.getNodeCount()]);
+    }
+
+    /**
+     * Podgraf zadany maską węzłów - maska nie jest kopiowana, a jej późniejsze zmiany należy wykonywać metodami
+     * {@link #add(int)} i {@link #remove(int)}.
+     *
+     * @param graph     graf bazowy
+     * @param nodeMask  maska węzłów (długości co najmniej graph.getNodeCount())
+     */
+    public InducedSubgraph(CompactGraph graph, boolean[] nodeMask) {
+        this.graph = graph;
+        this.nodeMask = nodeMask;
+        for (int node = 0; node < graph.getNodeCount(); ++node) {
+            if (nodeMask[node]) {
+                ++nodeCount;
+            }
+        }
+    }
+
+    /**
+     * Podgraf zawierający wszystkie węzły grafu.
+     */
+    public static InducedSubgraph ofAllNodes(CompactGraph graph) {
+        InducedSubgraph subgraph = new InducedSubgraph(graph);
+        Arrays.fill(subgraph.nodeMask, true);
+        subgraph.nodeCount = graph.getNodeCount();
+        return subgraph;
+    }
+
+    public boolean contains(int node) {
+        return nodeMask[node];
+    }
+
+    public void add(int node) {
+        if (!nodeMask[node]) {
+            nodeMask[node] = true;
+            ++nodeCount;
+        }
+    }
+
+    public void remove(int node) {
+        if (nodeMask[node]) {
+            nodeMask[node] = false;
+            --nodeCount;
+        }
+    }
+
+    /**
+     * Maska węzłów podgrafu udostępniana bezpośrednio (bez kopiowania). Nie wolno jej modyfikować.
+     */
+    public boolean[] getNodeMask() {
+        return nodeMask;
+    }
+
+    /**
+     * Początek listy sąsiedztwa węzła w grafie bazowym (zob. {@link CompactGraph#getFirstArc(int)}).
+     */
+    public int getFirstArc(int node) {
+        return graph.getFirstArc(node);
+    }
+
+    /**
+     * Koniec (wyłączny) listy sąsiedztwa węzła w grafie bazowym.
+     */
+    public int getEndArc(int node) {
+        return graph.getEndArc(node);
+    }
+
+    /**
+     * Czy łuk listy sąsiedztwa (indeks w tablicach {@link CompactGraph#getTargets()} itd.) prowadzi do węzła
+     * podgrafu.
+     */
+    public boolean isArcIncluded(int arc) {
+        return nodeMask[graph.getTargets()[arc]];
+    }
+
+    /**
+     * Stopień węzła w podgrafie (liczba łuków prowadzących do węzłów podgrafu).
+     */
+    public int getDegree(int node) {
+        int[] targets = graph.getTargets();
+        int degree = 0;
+        for (int i = graph.getFirstArc(node), end = graph.getEndArc(node); i < end; ++i) {
+            if (nodeMask[targets[i]]) {
+                ++degree;
+            }
+        }
+        return degree;
+    }
+
+    public boolean containsEdge(int edge) {
+        return nodeMask[graph.getEdgeNode0(edge)] && nodeMask[graph.getEdgeNode1(edge)];
+    }
+
+    /**
+     * Zwraca indeksy węzłów podgrafu (rosnąco).
+     *
+     * @return  tablica indeksów węzłów
+     */
+    public int[] getNodes() {
+        int[] nodes = new int[nodeCount];
+        for (int node = 0, count = 0; count < nodeCount; ++node) {
+            if (nodeMask[node]) {
+                nodes[count++] = node;
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Zwraca indeksy krawędzi podgrafu (rosnąco) - O(liczba krawędzi grafu bazowego).
+     *
+     * @return  tablica indeksów krawędzi
+     */
+    public int[] getEdges() {
+        int count = 0;
+        for (int e = 0; e < graph.getEdgeCount(); ++e) {
+            if (containsEdge(e)) {
+                ++count;
+            }
+        }
+        int[] edges = new int[count];
+        for (int e = 0, i = 0; i < count; ++e) {
+            if (containsEdge(e)) {
+                edges[i++] = e;
+            }
+        }
+        return edges;
+    }
+
+}
@@ -15,4 +15,20 @@ public class SolutionMeasurement {
     private int length;
     private float time; // w sekundach
     private SteinerAlgorithmEnum algorithm;
+    private Integer lowerBound; // dolne ograniczenie kosztu drzewa (null - nieznane)
+
+    public SolutionMeasurement(int length, float time, SteinerAlgorithmEnum algorithm) {
+        this(length, time, algorithm, null);
+    }
+
+    /**
+     * Względna luka między kosztem drzewa a dolnym ograniczeniem ((length - lowerBound) / lowerBound) albo null,
+     * jeśli ograniczenie nie jest znane.
+     */
+    public Float getGap() {
+        if (lowerBound == null) {
+            return null;
+        }
+        return lowerBound == 0 ? 0f : (float) (length - lowerBound) / lowerBound;
+    }
 }
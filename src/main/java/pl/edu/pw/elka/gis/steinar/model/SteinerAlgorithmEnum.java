@@ -2,5 +2,8 @@ package pl.edu.pw.elka.gis.steinar.model;
 
 public enum SteinerAlgorithmEnum {
     KMB,
-    HAKIMI
+    MEHLHORN,
+    HAKIMI,
+    HAKIMI_BRANCH_AND_BOUND,
+    DREYFUS_WAGNER
 }
@@ -6,70 +6,190 @@ import org.graphstream.graph.Edge;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.SingleGraph;
+import org.graphstream.stream.SinkAdapter;
 import pl.edu.pw.elka.gis.steinar.algorithms.Utils;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Klasa reprezentująca graf wejściowy programu wraz ze zbiorem terminali.
+ *
+ * Graf utworzony z postaci zwartej ({@link #SteinerGraph(String, CompactGraph, BitSet)}) nie tworzy obiektów
+ * GraphStream, dopóki nie są one potrzebne (np. do wizualizacji lub zmiany struktury grafu) - węzły otrzymują
+ * wtedy identyfikatory "1".."n" zgodne z numeracją plików STP, a krawędzie indeksy zgodne z postacią zwartą.
+ *
+ * Zwarta reprezentacja jest unieważniana przez obserwatora grafu GraphStream przy każdej zmianie węzłów, krawędzi
+ * lub wag krawędzi - także wykonanej bezpośrednio na grafie zwróconym przez {@link #getGraph()}. Zmiany grafu nie
+ * mogą jednak przebiegać równocześnie z obliczeniami ani z odczytem postaci zwartej w innych wątkach.
  */
 public class SteinerGraph {
-    private static int NEW_GRAPH_ID = 0;
+    private static final AtomicInteger NEW_GRAPH_ID = new AtomicInteger();
 
     public static final String WEIGHT_ATTR = "weight";
     public static final String TERMINAL_ATTR = "terminal";
-    public static final String RESULT_TREE_ATTR = "result_tree_attr";
 
-    @Getter
-    private final Graph graph;
+    // Graf GraphStream (w grafie utworzonym z postaci zwartej - budowany leniwie, pod blokadą obiektu):
+    private volatile Graph graph;
     @Getter
     @Setter
     private String name;
     @Getter
     private Set<String> terminalNodeIds = new HashSet<>();
-    @Getter
-    private List<Edge> resultTreeEdges = new ArrayList<>();
+    /**
+     * Krawędzie drzewa wynikowego - zbiór indeksów krawędzi grafu (zgodnych z indeksami zwartej reprezentacji).
+     */
+    private final BitSet resultTree = new BitSet();
+
+    // Zwarta reprezentacja grafu budowana leniwie; odczytywana bez blokady, budowana pod blokadą obiektu:
+    private volatile CompactGraph compactGraph;
 
     public SteinerGraph() {
-        graph = new SingleGraph(generateNewGraphID());
+        graph = observe(new SingleGraph(generateNewGraphID()));
     }
 
     public SteinerGraph(String name, Graph graph, Collection<String> terminalIds) {
         this.name = name;
-        this.graph = graph;
+        this.graph = observe(graph);
         terminalIds.forEach(this::markAsTerminal);
     }
 
+    /**
+     * Graf utworzony z postaci zwartej, bez budowy grafu GraphStream.
+     *
+     * @param name          nazwa grafu
+     * @param compactGraph  graf w postaci zwartej
+     * @param terminals     indeksy węzłów terminalnych
+     */
+    public SteinerGraph(String name, CompactGraph compactGraph, BitSet terminals) {
+        this.name = name;
+        this.compactGraph = compactGraph;
+        for (int node = terminals.nextSetBit(0); node >= 0; node = terminals.nextSetBit(node + 1)) {
+            this.terminalNodeIds.add(getCompactNodeId(node));
+        }
+    }
+
     public SteinerGraph(SteinerGraph another) {
         this.name = another.name;
-        this.graph = Utils.copyGraph(another.graph, generateNewGraphID());
+        Graph anotherGraph = another.graph;
+        if (anotherGraph != null) {
+            this.graph = observe(Utils.copyGraph(anotherGraph, generateNewGraphID()));
+        } else {
+            // Postać zwarta jest niezmienna - kopia może ją współdzielić:
+            this.compactGraph = another.compactGraph;
+        }
         this.terminalNodeIds.addAll(another.terminalNodeIds);
-        this.resultTreeEdges.addAll(another.resultTreeEdges);
+        this.resultTree.or(another.resultTree);
+    }
+
+    /**
+     * Zwraca graf GraphStream, w razie potrzeby budując go z postaci zwartej.
+     *
+     * @return  graf GraphStream
+     */
+    public Graph getGraph() {
+        Graph result = graph;
+        if (result == null) {
+            synchronized (this) {
+                result = graph;
+                if (result == null) {
+                    // Obserwator dodawany jest po zbudowaniu grafu - postać zwarta pozostaje aktualna:
+                    result = observe(buildGraph(compactGraph));
+                    graph = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Graph buildGraph(CompactGraph compact) {
+        Graph result = new SingleGraph(generateNewGraphID());
+        for (int node = 0; node < compact.getNodeCount(); ++node) {
+            String id = getCompactNodeId(node);
+            result.addNode(id).setAttribute(TERMINAL_ATTR, terminalNodeIds.contains(id));
+        }
+        for (int e = 0; e < compact.getEdgeCount(); ++e) {
+            String id0 = getCompactNodeId(compact.getEdgeNode0(e));
+            String id1 = getCompactNodeId(compact.getEdgeNode1(e));
+            result.addEdge(id0 + ":" + id1, id0, id1).setAttribute(WEIGHT_ATTR, compact.getEdgeWeight(e));
+        }
+        return result;
+    }
+
+    private Graph observe(Graph observed) {
+        observed.addSink(new CompactGraphInvalidator());
+        return observed;
+    }
+
+    private static String getCompactNodeId(int node) {
+        return Integer.toString(node + 1);
+    }
+
+    /**
+     * Czy graf GraphStream już istnieje (grafy utworzone z postaci zwartej budują go dopiero na żądanie).
+     */
+    public boolean isGraphBuilt() {
+        return graph != null;
     }
 
     public Edge addEdge(String idNode1, String idNode2, Integer weight) {
+        Graph graph = getGraph();
         Edge edge = graph.addEdge(idNode1 + ":" + idNode2, idNode1, idNode2);
         edge.setAttribute(WEIGHT_ATTR, weight == null ? 0 : weight);
         return edge;
     }
 
     public Node addNode(String idNode) {
-        Node node = graph.addNode(idNode);
+        Node node = getGraph().addNode(idNode);
         node.setAttribute(TERMINAL_ATTR, false);
         return node;
     }
 
     public void deleteNode(String idNode) {
-        this.graph.removeNode(idNode);
+        getGraph().removeNode(idNode);
         this.terminalNodeIds.remove(idNode);
     }
 
+    /**
+     * Zwraca zwartą reprezentację grafu (budowaną leniwie i odtwarzaną po zmianie grafu). Metoda może
+     * być wywoływana równocześnie z wielu wątków - reprezentacja budowana jest jednokrotnie, a jako obiekt
+     * niezmienny może być współdzielona przez równoległe obliczenia.
+     *
+     * @return  graf w postaci CSR
+     */
+    public CompactGraph getCompactGraph() {
+        CompactGraph compact = compactGraph;
+        if (compact == null) {
+            synchronized (this) {
+                compact = compactGraph;
+                if (compact == null) {
+                    compact = CompactGraph.fromGraph(getGraph(), WEIGHT_ATTR);
+                    compactGraph = compact;
+                }
+            }
+        }
+        return compact;
+    }
+
+    /**
+     * Zwraca indeksy węzłów terminalnych (zgodne z indeksami węzłów zwartej reprezentacji grafu).
+     *
+     * @return  tablica indeksów terminali
+     */
+    public int[] getTerminalIndices() {
+        if (!isGraphBuilt()) {
+            return terminalNodeIds.stream().mapToInt(id -> Integer.parseInt(id) - 1).sorted().toArray();
+        }
+        Graph graph = getGraph();
+        return terminalNodeIds.stream().mapToInt(id -> graph.getNode(id).getIndex()).sorted().toArray();
+    }
+
     public Collection<Node> getNodes() {
-        return graph.getNodeSet();
+        return getGraph().getNodeSet();
     }
 
     public Edge getEdge(String idNode0, String idNode1) {
-        return graph.getNode(idNode0).getEdgeToward(idNode1);
+        return getGraph().getNode(idNode0).getEdgeToward(idNode1);
     }
 
 
@@ -78,7 +198,7 @@ public class SteinerGraph {
     }
 
     public Collection<Edge> getEdges(String idNode) {
-        Node node = graph.getNode(idNode);
+        Node node = getGraph().getNode(idNode);
         return getEdges(node);
     }
 
@@ -87,12 +207,12 @@ public class SteinerGraph {
     }
 
     public Integer getLength(String idEdge) {
-        Edge edge = graph.getEdge(idEdge);
+        Edge edge = getGraph().getEdge(idEdge);
         return getLength(edge);
     }
 
     public Integer getWeight(String nodeId) {
-        return getWeight((Node) graph.getNode(nodeId));
+        return getWeight((Node) getGraph().getNode(nodeId));
     }
 
     public Integer getWeight(Node n) {
@@ -100,11 +220,17 @@ public class SteinerGraph {
     }
 
     public void markAsTerminal(String nodeId) {
-        Node node = graph.getNode(nodeId);
+        Node node = getGraph().getNode(nodeId);
         node.changeAttribute(TERMINAL_ATTR, true);
         this.terminalNodeIds.add(nodeId);
     }
 
+    public void unmarkAsTerminal(String nodeId) {
+        Node node = getGraph().getNode(nodeId);
+        node.changeAttribute(TERMINAL_ATTR, false);
+        this.terminalNodeIds.remove(nodeId);
+    }
+
     public boolean isTerminal(Node node) {
         Boolean result =  node.getAttribute(TERMINAL_ATTR, Boolean.class);
         return result != null ? result : false;
@@ -115,55 +241,85 @@ public class SteinerGraph {
     }
 
     public int getNodeCount() {
-        return this.graph.getNodeCount();
+        return isGraphBuilt() ? getGraph().getNodeCount() : compactGraph.getNodeCount();
     }
 
     public int getEdgeCount() {
-        return this.graph.getEdgeCount();
+        return isGraphBuilt() ? getGraph().getEdgeCount() : compactGraph.getEdgeCount();
     }
 
     public void markEdgeInResultTree(String idEdge) {
-        graph.getEdge(idEdge).setAttribute(RESULT_TREE_ATTR, true);
+        markEdgeResultTree(getGraph().getEdge(idEdge));
     }
 
     public void markEdgeResultTree(Edge edge) {
-        edge.setAttribute(RESULT_TREE_ATTR, true);
+        this.resultTree.set(edge.getIndex());
+    }
+
+    /**
+     * Dodanie krawędzi o podanych indeksach do drzewa wynikowego.
+     *
+     * @param edgeIndices   indeksy krawędzi (zgodne z indeksami zwartej reprezentacji grafu)
+     */
+    public void setResultTreeEdges(int[] edgeIndices) {
+        for (int edge : edgeIndices) {
+            this.resultTree.set(edge);
+        }
     }
 
     public void setResultTreeEdges(Collection<Edge> edges) {
-        graph.getEdgeSet()
-                .stream()
-                .filter( e -> edges
-                        .stream()
-                        .anyMatch(e2 -> e.getId().equals(e2.getId()))
-                )
-                .forEach(this::markEdgeResultTree);
+        edges.forEach(this::markEdgeResultTree);
+    }
+
+    public boolean isInResultTree(Edge edge) {
+        return this.resultTree.get(edge.getIndex());
+    }
+
+    /**
+     * Zwraca krawędzie drzewa wynikowego w kolejności indeksów.
+     *
+     * @return  lista krawędzi
+     */
+    public List<Edge> getResultTreeEdges() {
+        Graph graph = getGraph();
+        List<Edge> edges = new ArrayList<>(this.resultTree.cardinality());
+        for (int e = resultTree.nextSetBit(0); e >= 0; e = resultTree.nextSetBit(e + 1)) {
+            edges.add(graph.getEdge(e));
+        }
+        return edges;
+    }
 
-        this.resultTreeEdges.addAll(edges);
+    /**
+     * Zwraca indeksy krawędzi drzewa wynikowego (rosnąco).
+     *
+     * @return  tablica indeksów krawędzi
+     */
+    public int[] getResultTreeEdgeIndices() {
+        return this.resultTree.stream().toArray();
     }
 
     public int getResultTreeWeight() {
+        CompactGraph compact = getCompactGraph();
         int weight = 0;
-        for (Edge edge : this.resultTreeEdges) {
-            weight += edge.<Integer>getAttribute(SteinerGraph.WEIGHT_ATTR);
+        for (int e = resultTree.nextSetBit(0); e >= 0; e = resultTree.nextSetBit(e + 1)) {
+            weight += compact.getEdgeWeight(e);
         }
         return weight;
     }
 
     public int getResultTreeEdgeCount() {
-        return this.resultTreeEdges.size();
+        return this.resultTree.cardinality();
     }
 
     public void clearSolution() {
-        this.graph.getEdgeSet().forEach(edge -> edge.removeAttribute(RESULT_TREE_ATTR));
-        this.resultTreeEdges.clear();
+        this.resultTree.clear();
     }
 
     @Override
     public String toString() {
         StringBuffer out = new StringBuffer();
         out.append("SteinerGraph{ graph= '");
-        out.append(graph);
+        out.append(getGraph());
         out.append('}');
 
         getNodes().forEach(node -> {
@@ -185,7 +341,66 @@ public class SteinerGraph {
     }
 
     private static String generateNewGraphID() {
-        return "Graph" + String.valueOf(NEW_GRAPH_ID++);
+        return "Graph" + NEW_GRAPH_ID.getAndIncrement();
+    }
+
+    /**
+     * Obserwator grafu GraphStream unieważniający postać zwartą po zmianie węzłów, krawędzi lub wag krawędzi
+     * (pozostałe atrybuty, np. znaczniki terminali i atrybuty wizualizacji, nie należą do postaci zwartej).
+     */
+    private final class CompactGraphInvalidator extends SinkAdapter {
+
+        @Override
+        public void nodeAdded(String sourceId, long timeId, String nodeId) {
+            compactGraph = null;
+        }
+
+        @Override
+        public void nodeRemoved(String sourceId, long timeId, String nodeId) {
+            compactGraph = null;
+        }
+
+        @Override
+        public void edgeAdded(String sourceId, long timeId, String edgeId, String fromNodeId, String toNodeId,
+                              boolean directed) {
+            compactGraph = null;
+        }
+
+        @Override
+        public void edgeRemoved(String sourceId, long timeId, String edgeId) {
+            compactGraph = null;
+            // Usunięcie krawędzi zmienia indeksy pozostałych - drzewo wynikowe przestaje być aktualne:
+            resultTree.clear();
+        }
+
+        @Override
+        public void graphCleared(String sourceId, long timeId) {
+            compactGraph = null;
+            resultTree.clear();
+        }
+
+        @Override
+        public void edgeAttributeAdded(String sourceId, long timeId, String edgeId, String attribute, Object value) {
+            invalidateOnWeightChange(attribute);
+        }
+
+        @Override
+        public void edgeAttributeChanged(String sourceId, long timeId, String edgeId, String attribute,
+                                         Object oldValue, Object newValue) {
+            invalidateOnWeightChange(attribute);
+        }
+
+        @Override
+        public void edgeAttributeRemoved(String sourceId, long timeId, String edgeId, String attribute) {
+            invalidateOnWeightChange(attribute);
+        }
+
+        private void invalidateOnWeightChange(String attribute) {
+            if (WEIGHT_ATTR.equals(attribute)) {
+                compactGraph = null;
+            }
+        }
+
     }
 
 }